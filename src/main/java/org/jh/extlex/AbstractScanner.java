@@ -0,0 +1,292 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import org.jh.extlex.exception.UnknownTokenException;
+
+/**
+ * Scans the tokens of chars read by a TokenReader. All information changed
+ * while scanning (the stack of recursive states and the positions of the
+ * groups) is kept in the scanner. The tables of the Tokenizer are only read,
+ * so several scanners of one Tokenizer may run in different threads.
+ * A scanner itself must be used by one thread only.
+ * The Scanner pulls the tokens from its input, the PushScanner passes them
+ * to a consumer. Both run the DFA in scanToken, the Matcher in its match
+ * mode.
+ */
+public abstract class AbstractScanner<T> extends BaseScanner<T> {
+    protected final TokenReader tr;
+    // true if a token was in progress at the end of the input pushed so far
+    private boolean inToken = false;
+    private int act;
+    private int ppos;
+
+    AbstractScanner(DTable<T> table, TokenReader tr) {
+        super(table, table.program);
+        this.tr = tr;
+    }
+
+    /**
+     * Returns a checkpoint after the last token. A scan of the input from the
+     * offset of the checkpoint on can be resumed with Tokenizer.scan(Reader, Checkpoint).
+     */
+    public Checkpoint checkpoint() {
+        return tr.checkpoint(false, new byte[0]);
+    }
+
+    /**
+     * Returns a view of the input between the offsets, which must be in the
+     * buffer. The characters from a pinned offset on stay in the buffer.
+     */
+    final public TokenView view(long from, long to) {
+        int start = tr.indexOf(from);
+
+        return new TokenView().set(tr.getBuffer(), start, tr.indexOf(to) - start);
+    }
+
+    /**
+     * Keeps the input from the offset on in the buffer, e.g. for looking behind
+     * the current token with view. A negative offset removes the pin.
+     */
+    final public void pin(long offset) {
+        tr.pin(offset);
+    }
+
+    @Override
+    final public long tokenStart() {
+        return tr.getStartOffset();
+    }
+
+    @Override
+    final public long tokenEnd() {
+        return tr.getEndOffset();
+    }
+
+    @Override
+    final public int getYPos() {
+        return tr.getYPos();
+    }
+
+    @Override
+    final public int getXPos() {
+        return tr.getXPos();
+    }
+
+    @Override
+    final protected char[] tokenText() {
+        return tr.getBuffer();
+    }
+
+    @Override
+    final protected int textIndex(int pos) {
+        return pos - tr.getDelta();
+    }
+
+    @Override
+    final protected int tokenStartPos() {
+        return tr.getDelta() + tr.getOffset();
+    }
+
+    @Override
+    final protected int tokenEndPos() {
+        return tr.getPos();
+    }
+
+    final protected void clear() {
+        tr.accepted();
+        stackState.clear();
+        groups.clear();
+
+        finState = null;
+        accumulated = false;
+
+        if (memo != null) {
+            startMemoTrail();
+        }
+
+        if (numbers != null) {
+            numbers.clear();
+        }
+    }
+
+    // true if a token is in progress at the end of the input pushed so far
+    final protected boolean isInToken() {
+        return inToken;
+    }
+
+    final protected void startMemoTrail() {
+        memo.clearBefore(tr.getPos());
+        memo.startTrail(tr.getPos());
+    }
+
+    final protected boolean handleFinStates(int ppos) throws UnknownTokenException {
+        while (finState != null) {
+            closeGroups(finState, ppos);
+
+            if (!stackState.isEmpty()) {
+                finState = table.finStates[stackState.pop()];
+            } else {
+                break;
+            }
+        }
+
+        return finState != null;
+    }
+
+    /*
+     * Runs the DFA until the next token which isn't skipped is complete.
+     * If more input may be pushed (ended is false), the state of a token in
+     * progress at the end of the input is kept and the next call continues it.
+     * Returns false if there is no complete token.
+     * In match mode (Matcher) only the token at the current position is read,
+     * also if it is skipped, and false is returned instead of throwing an
+     * UnknownTokenException if there is none.
+     */
+    final protected boolean scanToken(boolean ended, boolean match) throws UnknownTokenException, IOException {
+        final int[] next = table.next;
+        final int classCount = table.classCount;
+        boolean started = inToken;
+        int act = this.act;
+        int ppos = this.ppos;
+
+        inToken = false;
+
+        while (true) {
+            if (!started) {
+                if (tr.reachedEndOfReader()) return false;
+
+                act = table.startState;
+                ppos = tr.getPos();
+                started = true;
+
+                clear();
+            }
+
+            int ch = tr.read();
+
+            if (ch == -1) {
+                if (!ended && !tr.atTokenLimit()) {
+                    // wait for more input
+                    inToken = true;
+                    this.act = act;
+                    this.ppos = ppos;
+
+                    return false;
+                }
+
+                if (completeToken(match)) return true;
+                if (match) return false;
+
+                started = false;
+                continue;
+            }
+
+            int cell = act * classCount + table.classOf(ch);
+
+            if (next[cell] != DTable.NO_STATE && (memo == null || !memo.hasFailed(next[cell], tr.getPos()))) {
+                act = next[cell];
+
+                if (numbers != null && table.numberStates[act]) numbers.add(ch);
+
+                if (table.trActions[cell] != 0) {
+                    runActions(table.trActions[cell], ppos);
+                }
+
+                if (table.finStates[act] != null) {
+                    finState = table.finStates[act];
+
+                    tr.mark();
+
+                    if (memo != null) memo.startTrail(tr.getPos());
+                    if (numbers != null) numbers.mark();
+                } else if (memo != null) {
+                    memo.addToTrail(act);
+                }
+
+                // the pairs of a run share the result of the state at its end, so they aren't looked up in the memo
+                if (table.loops[act] != null) {
+                    int runStart = tr.getPos();
+
+                    tr.readRun(table.loops[act]);
+
+                    if (numbers != null && table.numberStates[act]) {
+                        numbers.add(tr.getBuffer(), runStart - tr.getDelta(), tr.getPos() - tr.getDelta());
+                    }
+
+                    if (table.finStates[act] != null) {
+                        tr.mark();
+
+                        if (memo != null) memo.startTrail(tr.getPos());
+                        if (numbers != null) numbers.mark();
+                    } else if (memo != null) {
+                        memo.addToTrail(act, tr.getPos() - runStart);
+                    }
+                }
+
+                ppos = tr.getPos();
+            } else {
+                if (finState == null) {
+                    if (!match) tr.throwUnknownTokenException();
+                    if (memo != null) memo.failTrail();
+
+                    return false;
+                }
+
+                if (stackState.isEmpty()) {
+                    if (completeToken(match)) return true;
+
+                    // the token was skipped, continue with the next one
+                    started = false;
+                } else {
+                    if (memo != null) memo.failTrail();
+
+                    ppos = tr.reset();
+
+                    if (numbers != null) numbers.reset();
+
+                    closeGroups(finState, ppos);
+
+                    finState = null;
+                    act = stackState.pop();
+                }
+            }
+        }
+    }
+
+    // resets to the end of the longest token read, returns false if it is skipped or in match mode missing
+    private boolean completeToken(boolean match) throws UnknownTokenException, IOException {
+        tr.checkTokenLength(finState != null);
+
+        if (memo != null) memo.failTrail();
+
+        int endPos = tr.reset();
+
+        if (numbers != null) numbers.reset();
+
+        if (finState == null && tr.reachedEndOfReader()) return false;
+
+        if (!handleFinStates(endPos)) {
+            if (match) return false;
+
+            throw new UnknownTokenException("Unknown token not read '" + tr.getNonReadString() + "'!");
+        }
+
+        accumulated = numbers != null && !finState.skip;
+
+        return match || !finState.skip;
+    }
+}
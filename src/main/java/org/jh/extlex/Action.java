@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * Actions executed by the scanner on a transition or when a final state is left.
+ * An action is coded as int. The lowest two bits contain the operation and
+ * the remaining bits the argument.
+ * OPEN and CLOSE save the current position as start or end of a group. The
+ * argument is the slot of the BracketInfo. PUSH puts the state with the
+ * argument as id on the stack of recursive states.
+ */
+final class Action {
+    static final int OPEN = 0;
+    static final int CLOSE = 1;
+    static final int PUSH = 2;
+
+    private Action() {
+    }
+
+    static int open(int slot) {
+        return slot << 2 | OPEN;
+    }
+
+    static int close(int slot) {
+        return slot << 2 | CLOSE;
+    }
+
+    static int push(int stateId) {
+        return stateId << 2 | PUSH;
+    }
+
+    static int op(int action) {
+        return action & 3;
+    }
+
+    static int arg(int action) {
+        return action >>> 2;
+    }
+
+    static String toString(int action) {
+        switch (op(action)) {
+            case OPEN: return "open " + arg(action);
+            case CLOSE: return "close " + arg(action);
+            default: return "push " + arg(action);
+        }
+    }
+}
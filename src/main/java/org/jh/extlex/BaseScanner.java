@@ -0,0 +1,345 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import static org.jh.extlex.Logger.DEBUG;
+import org.jh.extlex.exception.UnknownTokenException;
+import org.jh.extlex.util.IntList;
+
+/**
+ * The common part of the scanners of chars (AbstractScanner) and of UTF-8
+ * bytes (ByteScanner): the pull API, the actions of the groups, the token
+ * and group methods and the values of the number literals.
+ * The subclasses read the tokens. The text of the current token is read
+ * through tokenText and textIndex, which map the int positions of the
+ * scan (used by the groups) to indices in the chars of the token.
+ */
+public abstract class BaseScanner<T> {
+    // returned by nextTokenType if there are no more tokens
+    public static final int END = -1;
+
+    protected final DTable<T> table;
+    protected final IntList stackState = new IntList();
+    protected final GroupPositions groups;
+    protected DStateFin<T> finState;
+    protected FailureMemo memo;
+    protected final NumberAccumulator numbers;
+    // true if the value of the current token was accumulated while scanning
+    protected boolean accumulated = false;
+    private final int[] program;
+    private final TokenView view = new TokenView();
+
+    BaseScanner(DTable<T> table, int[] program) {
+        this.table = table;
+        this.program = program;
+        this.groups = new GroupPositions(table.brackets.length);
+        this.memo = !table.recursive && !table.backtrackingPatterns.isEmpty() ? new FailureMemo() : null;
+        this.numbers = table.numberStates != null ? new NumberAccumulator() : null;
+    }
+
+    /**
+     * Reads the next token. Tokens of patterns without token and group
+     * methods (e.g. white spaces) are skipped.
+     * @return false if there are no more tokens
+     */
+    protected abstract boolean hasNext() throws UnknownTokenException, IOException;
+
+    // the offset of the first character of the current token in the input
+    public abstract long tokenStart();
+
+    // the offset after the last character of the current token in the input
+    public abstract long tokenEnd();
+
+    // the line of the token start
+    public abstract int getYPos();
+
+    // the column of the token start
+    public abstract int getXPos();
+
+    // the chars which contain the current token
+    protected abstract char[] tokenText();
+
+    // the index in tokenText of a position of the current token
+    protected abstract int textIndex(int pos);
+
+    // the positions of the start and the end of the current token
+    protected abstract int tokenStartPos();
+    protected abstract int tokenEndPos();
+
+    /**
+     * Switches the linear time mode on or off. In this mode the scanner
+     * remembers the states and positions from which a longer token failed
+     * and doesn't read the same characters again (see FailureMemo).
+     * The mode is switched on by default if the Tokenizer has patterns which
+     * may cause unbounded backtracking (Tokenizer.getBacktrackingPatterns).
+     * It is not possible for recursive patterns.
+     */
+    final public void setLinearTime(boolean linearTime) {
+        if (linearTime && table.recursive) {
+            throw new IllegalStateException("The linear time mode is not possible for recursive patterns!");
+        }
+
+        memo = !linearTime ? null : memo != null ? memo : new FailureMemo();
+    }
+
+    final public boolean isLinearTime() {
+        return memo != null;
+    }
+
+    final protected void runActions(int pc, int pos) {
+        for (int end = pc + program[pc]; pc < end;) {
+            int action = program[++pc];
+
+            if (Logger.DEBUG) {
+                DEBUG(String.format("  Transition: %s at %d%n", Action.toString(action), pos));
+            }
+
+            switch (Action.op(action)) {
+                case Action.OPEN:
+                    groups.open(Action.arg(action), pos);
+                    break;
+                case Action.CLOSE:
+                    groups.close(Action.arg(action), pos);
+                    break;
+                default:
+                    stackState.push(Action.arg(action));
+            }
+        }
+    }
+
+    final protected void closeGroups(DStateFin<T> fin, int pos) {
+        int pc = table.finActions[fin.getId()];
+
+        if (pc != 0) {
+            runActions(pc, pos);
+        }
+    }
+
+    final public T getNextToken() throws Exception {
+        if (!hasNext()) {
+            return null;
+        }
+
+        if (finState != null) {
+            if (finState.matchToken != null) {
+                return getToken();
+            } else {
+                applyGroups();
+            }
+        }
+
+        return null;
+    }
+
+    final public void getAllToken() throws Exception {
+        while (hasNext()) {
+            if (finState != null) {
+                if (finState.matchToken != null) {
+                    getToken();
+                } else {
+                    applyGroups();
+                }
+            }
+        }
+    }
+
+    final public void getAllTokens(Consumer<T> cons) throws Exception {
+        while (hasNext()) {
+            if (finState != null) {
+                if (finState.matchToken != null) {
+                    cons.accept(getToken());
+                } else {
+                    applyGroups();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the batch with the next tokens instead of calling the token methods.
+     * Every token returned by hasNext is added with the rule number of its
+     * pattern, also of patterns added by Lexer.addTokenType. No token or group
+     * method is called. The starts and lengths are offsets of tokenStart
+     * and tokenEnd, i.e. bytes for a ByteScanner.
+     * @return the number of tokens in the batch, 0 if there are no more tokens
+     */
+    final public int fillBatch(TokenBatch batch) throws Exception {
+        batch.clear();
+
+        while (!batch.isFull() && hasNext()) {
+            long start = tokenStart();
+            int length = (int) (tokenEnd() - start);
+
+            if (batch.hasPositions()) {
+                batch.add(finState.ruleNo, start, length, getYPos(), getXPos());
+            } else {
+                batch.add(finState.ruleNo, start, length);
+            }
+        }
+
+        return batch.size();
+    }
+
+    /**
+     * Reads the next token and returns the rule number of its pattern, which
+     * is the number of patterns added to the Lexer before it. No token or
+     * group method is called. The token is at tokenStart and tokenEnd.
+     * @return END if there are no more tokens
+     */
+    final public int nextTokenType() throws UnknownTokenException, IOException {
+        return hasNext() ? finState.ruleNo : END;
+    }
+
+    /**
+     * Reads the next token and returns the enum constant bound to its pattern
+     * (see Lexer.addTokenType), so the caller can switch on it.
+     * @return null if there are no more tokens
+     */
+    final public <E extends Enum<E>> E nextTokenType(Class<E> type) throws UnknownTokenException, IOException {
+        return hasNext() ? tokenType(type) : null;
+    }
+
+    /**
+     * Reads the next token and returns the value of its int token method
+     * (see Lexer.addIntPattern) without boxing it.
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws IllegalStateException if the pattern of the token has no int token method
+     */
+    final public int nextInt() throws Exception {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return intToken();
+    }
+
+    // reads the next token, which must have a long or int token method
+    final public long nextLong() throws Exception {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return longToken();
+    }
+
+    // reads the next token, which must have a double, long or int token method
+    final public double nextDouble() throws Exception {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return doubleToken();
+    }
+
+    /**
+     * Returns the reused view of the current token. It is valid until the
+     * next call of hasNext.
+     */
+    final public TokenView tokenView() {
+        char[] text = tokenText();
+        int offset = textIndex(tokenStartPos());
+
+        return view.set(text, offset, textIndex(tokenEndPos()) - offset);
+    }
+
+    final protected void applyGroups() throws Exception {
+        char[] text = tokenText();
+        int ruleNo = finState.ruleNo;
+        int end = tokenEndPos();
+
+        // groups closed while reading ahead after the token don't belong to it
+        for (int i = 0, count = groups.size(); i < count; i++) {
+            BracketInfo bracketInfo = table.brackets[groups.getSlot(i)];
+
+            if (bracketInfo.ruleNo == ruleNo && end - groups.getEndPos(i) >= 0) {
+                int start = textIndex(groups.getStartPos(i));
+
+                bracketInfo.groupMeth.accept(text, start, textIndex(groups.getEndPos(i)) - start);
+            }
+        }
+    }
+
+    // the rule number of the current token
+    final public int tokenType() {
+        return finState.ruleNo;
+    }
+
+    // the enum constant bound to the pattern of the current token or null
+    final public <E extends Enum<E>> E tokenType(Class<E> type) {
+        return type.cast(finState.type);
+    }
+
+    // the value of the int token method for the current token
+    final public int intToken() throws Exception {
+        if (accumulated && finState.literal == PrimitiveToken.INTEGER_LITERAL && numbers.isExactLong()) {
+            return NumberAccumulator.toInt(numbers.longValue());
+        }
+
+        int offset = prepareToken();
+
+        return finState.applyAsInt(tokenText(), offset, textIndex(tokenEndPos()) - offset);
+    }
+
+    final public long longToken() throws Exception {
+        if (accumulated && finState.literal == PrimitiveToken.INTEGER_LITERAL && numbers.isExactLong()) {
+            return numbers.longValue();
+        }
+
+        int offset = prepareToken();
+
+        return finState.applyAsLong(tokenText(), offset, textIndex(tokenEndPos()) - offset);
+    }
+
+    final public double doubleToken() throws Exception {
+        if (accumulated && finState.literal == PrimitiveToken.DECIMAL_LITERAL && numbers.isExactDouble()) {
+            return numbers.doubleValue();
+        } else if (accumulated && finState.literal == PrimitiveToken.INTEGER_LITERAL && numbers.isExactLong()) {
+            return numbers.longValue();
+        }
+
+        int offset = prepareToken();
+
+        return finState.applyAsDouble(tokenText(), offset, textIndex(tokenEndPos()) - offset);
+    }
+
+    // calls the initializer and the group methods, returns the start of the token in tokenText
+    private int prepareToken() throws Exception {
+        if (finState == null) {
+            throw new IllegalStateException("There is no current token!");
+        }
+
+        finState.init.init();
+
+        applyGroups();
+
+        return textIndex(tokenStartPos());
+    }
+
+    final public T getToken() throws Exception {
+        if (finState != null) {
+            int offset = prepareToken();
+
+            if (finState.matchToken != null) {
+                return finState.matchToken.apply(tokenText(), offset, textIndex(tokenEndPos()) - offset);
+            }
+        }
+
+        return null;
+    }
+}
@@ -15,35 +15,16 @@
  */
 package org.jh.extlex;
 
-import java.util.List;
-import static org.jh.extlex.Logger.DEBUG;
-import org.jh.extlex.util.Pair;
-
 class BracketInfo {
-    protected String regexp;
-    protected GroupMeth groupMeth;
-    protected List<GroupInfo> groupList;
-    protected Pair<GroupInfo> actgi = null;
+    protected final String regexp;
+    protected final int ruleNo;
+    protected final GroupMeth groupMeth;
+    protected final int slot;
     
-    public BracketInfo(String regexp, GroupMeth groupMeth, List<GroupInfo> groupList) {
+    public BracketInfo(String regexp, int ruleNo, GroupMeth groupMeth, int slot) {
         this.regexp = regexp;
+        this.ruleNo = ruleNo;
         this.groupMeth = groupMeth;
-        this.groupList = groupList;
-    }
-       
-    final protected void saveStartPos(int startpos) {
-        DEBUG(String.format("saveStartPos: pos=%d%n", startpos));
-        
-        actgi = new Pair<>(new GroupInfo(regexp, groupMeth, startpos), actgi);
-    }
-    
-    final protected void saveEndPos(int endpos) {
-        GroupInfo gi = actgi.car().setEndPos(endpos);        
-        
-        DEBUG(String.format("saveEndPos: startpos=%d pos=%d%n", gi.getStartPos(), gi.getEndPos()));
-        
-        groupList.add(gi);
-        
-        actgi = actgi.cdr();
+        this.slot = slot;
     }
 }
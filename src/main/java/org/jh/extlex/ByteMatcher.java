@@ -0,0 +1,177 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.jh.extlex.exception.UnknownTokenException;
+
+/**
+ * Finds the tokens in UTF-8 encoded bytes like the Matcher does in chars.
+ * The end of the next token is found by a SearchTable over the bytes and its
+ * start by TokenStarts over the bytes after the last quiet position. Bytes
+ * which can't start a token are skipped without a table lookup.
+ */
+public class ByteMatcher<T> extends ByteScanner<T> {
+    private final SearchTable search;
+    private final TokenStarts starts;
+
+    ByteMatcher(DTable<T> table, ByteBuffer input) {
+        super(table, input);
+
+        this.search = table.getByteSearchTable();
+        this.starts = createStarts();
+    }
+
+    ByteMatcher(DTable<T> table, FileChannel channel, int windowSize) throws IOException {
+        super(table, channel, windowSize, null, 0);
+
+        this.search = table.getByteSearchTable();
+        this.starts = createStarts();
+    }
+
+    // the nodes inside of a character aren't final
+    private TokenStarts createStarts() {
+        if (search == null) {
+            return null;
+        }
+
+        boolean[] finals = new boolean[bytes.next.length >> 8];
+
+        for (int state = 0; state < bytes.stateCount; state++) {
+            finals[state] = table.finStates[state] != null;
+        }
+
+        return new TokenStarts(256, bytes.startState, finals);
+    }
+
+    @Override
+    public boolean hasNext() throws UnknownTokenException, IOException {
+        do {
+            if (!skipToFirstByte()) {
+                return false;
+            }
+
+            if (search != null && (!findEndOfToken() || !findStartOfToken())) {
+                close();
+
+                return false;
+            }
+
+            while (!readToken()) {
+                pos = tokenStart + 1;
+
+                if (!skipToFirstByte()) {
+                    return false;
+                }
+            }
+        } while (finState.skip);
+
+        return true;
+    }
+
+    // skips the bytes which can't start a token, returns false at the end of the input
+    private boolean skipToFirstByte() throws IOException, UnknownTokenException {
+        final boolean[] firstBytes = bytes.firstBytes;
+
+        while (hasMoreInput()) {
+            while (pos < end && !firstBytes[input.get(base + pos) & 0xff]) {
+                pos++;
+            }
+
+            if (pos < end) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // reads until a token ends, the text before the last quiet position is skipped
+    private boolean findEndOfToken() throws IOException, UnknownTokenException {
+        final int[] next = search.next;
+        final boolean[] match = search.match;
+        final boolean[] firstBytes = bytes.firstBytes;
+        int act = SearchTable.QUIET;
+        int p = pos;
+
+        while (true) {
+            for (; p < end; p++) {
+                int b = input.get(base + p) & 0xff;
+
+                if (act == SearchTable.QUIET && !firstBytes[b]) {
+                    continue;
+                }
+
+                if (act == SearchTable.QUIET) {
+                    pos = p;
+                }
+
+                act = next[act << 8 | b];
+
+                if (act == SearchTable.QUIET) {
+                    pos = p + 1;
+                } else if (match[act]) {
+                    return true;
+                }
+            }
+
+            if (act == SearchTable.QUIET) {
+                pos = p;
+            }
+
+            int from = pos;
+
+            if (!moveWindow(from)) {
+                return false;
+            }
+
+            p -= from;
+        }
+    }
+
+    // moves pos to the first token after the last quiet position
+    private boolean findStartOfToken() throws IOException, UnknownTokenException {
+        final int[] next = bytes.next;
+
+        starts.clear();
+
+        for (int p = pos;; p++) {
+            if (p == end) {
+                int from = pos;
+
+                if (!moveWindow(from)) {
+                    break;
+                }
+
+                p -= from;
+            }
+
+            if (!starts.step(next, input.get(base + p) & 0xff, p - pos)) {
+                break;
+            }
+        }
+
+        if (starts.first() == -1) {
+            return false;
+        }
+
+        pos += starts.first();
+
+        return true;
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import org.jh.extlex.exception.UnknownTokenException;
+
+/**
+ * Scans the tokens of UTF-8 encoded bytes with the ByteTable of a Tokenizer.
+ * The bytes are not decoded, tokenStart and tokenEnd are byte offsets from the
+ * position of the ByteBuffer or from the start of the file. Only when a token
+ * or group method is called, the bytes of the token are decoded into chars.
+ * The line and column of a token start are counted on request.
+ * A file is mapped into memory in windows. When a token reaches the end of
+ * a window, the next window is mapped from the start of the token. So a token
+ * can't be longer than a window. The file is closed at the end of the input
+ * or by close.
+ * In follow mode the end of the file is not the end of the input. The scanner
+ * polls the size of the file until it grows and maps the new bytes. A token
+ * at the end of the file is kept pending, because it may go on. stop ends
+ * the scan from another thread, a pending token is then not returned.
+ * Patterns which may cause unbounded backtracking are scanned in the linear
+ * time mode like in the Scanner.
+ * The token API is the one of the BaseScanner, the group positions are byte
+ * positions in the window, which textIndex maps to the decoded chars.
+ * A scanner must be used by one thread only.
+ */
+public class ByteScanner<T> extends BaseScanner<T> implements AutoCloseable {
+    static final int WINDOW_SIZE = 1 << 30;
+
+    protected final ByteTable bytes;
+    private final FileChannel channel;
+    private long size;
+    private final int windowSize;
+    private final long followMillis;
+    private volatile boolean stopped = false;
+    protected ByteBuffer input;
+    protected long windowOffset = 0;
+    protected int base;
+    protected int end;
+    protected int pos = 0;
+    protected int tokenStart = 0;
+    protected int tokenEnd = 0;
+    private int failPos = 0;
+    private char[] chars = new char[64];
+    private int[] charIndex = new int[65];
+    // true if the current token has been decoded into chars
+    private boolean decoded = false;
+    private long lineOffset = 0;
+    private long line = 1;
+    private int column = 1;
+
+    ByteScanner(DTable<T> table, ByteBuffer input) {
+        super(table, table.getByteTable().program);
+
+        this.bytes = table.getByteTable();
+        this.channel = null;
+        this.input = input;
+        this.base = input.position();
+        this.end = input.limit() - base;
+        this.size = end;
+        this.windowSize = end;
+        this.followMillis = 0;
+    }
+
+    /*
+     * Scans the file from the offset of the checkpoint on, or from the start
+     * if it is null. With followMillis > 0 the size of the file is polled in
+     * this interval at its end.
+     */
+    ByteScanner(DTable<T> table, FileChannel channel, int windowSize, Checkpoint checkpoint, long followMillis)
+        throws IOException {
+        super(table, table.getByteTable().program);
+
+        this.bytes = table.getByteTable();
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.followMillis = followMillis;
+
+        if (checkpoint != null) {
+            if (checkpoint.getOffset() > size) {
+                throw new IOException("The checkpoint is after the end of the file!");
+            }
+
+            windowOffset = lineOffset = checkpoint.getOffset();
+            line = checkpoint.getLine();
+            column = checkpoint.getColumn();
+        }
+
+        this.input = channel.map(FileChannel.MapMode.READ_ONLY, windowOffset, Math.min(windowSize, size - windowOffset));
+        this.base = 0;
+        this.end = input.limit();
+    }
+
+    @Override
+    final public long tokenStart() { return windowOffset + tokenStart; }
+    @Override
+    final public long tokenEnd() { return windowOffset + tokenEnd; }
+
+    /**
+     * Returns a checkpoint after the last token. The scan of the file can be
+     * resumed from there with Tokenizer.scan(Path, Checkpoint).
+     */
+    public Checkpoint checkpoint() {
+        countLines(tokenStart);
+
+        long startOffset = lineOffset;
+        long startLine = line;
+        int startColumn = column;
+
+        countLines(pos);
+
+        Checkpoint checkpoint = new Checkpoint(windowOffset + pos, line, column, new char[0], new byte[0]);
+
+        lineOffset = startOffset; // the positions of the token start are still needed
+        line = startLine;
+        column = startColumn;
+
+        return checkpoint;
+    }
+
+    // ends the scan in follow mode, may be called by another thread
+    final public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /*
+     * Maps the next window starting at the position from of the current
+     * window. Returns false at the end of the input.
+     */
+    final protected boolean moveWindow(int from) throws IOException, UnknownTokenException {
+        if (channel == null || windowOffset + end == size && !waitForGrowth()) {
+            return false;
+        }
+
+        if (from == 0 && end == windowSize) {
+            throw new UnknownTokenException("Token at " + windowOffset + " is longer than " + windowSize + " bytes!");
+        }
+
+        long start = windowOffset + from;
+
+        input = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+        windowOffset = start;
+        end = input.limit();
+        pos -= from;
+        tokenStart -= from;
+        tokenEnd -= from;
+
+        if (memo != null) {
+            memo.clear(); // the positions have moved with the window
+        }
+
+        return true;
+    }
+
+    // returns false if the file doesn't grow until the scan is stopped or not in follow mode
+    private boolean waitForGrowth() throws IOException {
+        while (followMillis > 0 && !stopped) {
+            long newSize = channel.size();
+
+            if (newSize < size) {
+                throw new IOException("The file has been truncated!");
+            }
+
+            if (newSize > size) {
+                size = newSize;
+
+                return true;
+            }
+
+            try {
+                Thread.sleep(followMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+        }
+
+        return false;
+    }
+
+    // returns false at the end of the input
+    final protected boolean hasMoreInput() throws IOException, UnknownTokenException {
+        if (pos < end || moveWindow(pos)) {
+            return true;
+        }
+
+        close();
+
+        return false;
+    }
+
+    /**
+     * Reads the next token. Tokens of patterns without token and group
+     * methods are skipped.
+     * @return false if there are no more tokens
+     */
+    @Override
+    public boolean hasNext() throws UnknownTokenException, IOException {
+        do {
+            if (!hasMoreInput()) {
+                return false;
+            }
+
+            if (!readToken()) {
+                if (stopped) {
+                    close();
+
+                    return false;
+                }
+
+                throw new UnknownTokenException("Unknown token '" + decode(tokenStart, Math.min(failPos + 1, end)) + "'!");
+            }
+        } while (finState.skip);
+
+        return true;
+    }
+
+    // reads the longest token starting at pos
+    final protected boolean readToken() throws IOException, UnknownTokenException {
+        final int[] next = bytes.next;
+        final int stateCount = bytes.stateCount;
+
+        while (true) {
+            int act = bytes.startState;
+            int charStart = pos;
+            int p = pos;
+
+            finState = null;
+            tokenStart = tokenEnd = pos;
+            groups.clear();
+            decoded = false;
+            accumulated = false;
+
+            if (numbers != null) {
+                numbers.clear();
+            }
+
+            if (memo != null) {
+                memo.clearBefore(pos);
+                memo.startTrail(pos);
+            }
+
+            for (; p < end; p++) {
+                int cell = act << 8 | (input.get(base + p) & 0xff);
+
+                if (next[cell] == ByteTable.NO_STATE || memo != null && memo.hasFailed(next[cell], p + 1)) {
+                    break;
+                }
+
+                act = next[cell];
+
+                if (act < stateCount) {
+                    if (bytes.actions[cell] != 0) {
+                        runActions(bytes.actions[cell], charStart);
+                    }
+
+                    // only ASCII characters change the value of a number
+                    if (numbers != null && table.numberStates[act] && charStart == p) {
+                        numbers.add(input.get(base + p));
+                    }
+
+                    charStart = p + 1;
+
+                    if (table.finStates[act] != null) {
+                        finState = table.finStates[act];
+                        tokenEnd = p + 1;
+
+                        if (memo != null) memo.startTrail(p + 1);
+                        if (numbers != null) numbers.mark();
+
+                        continue;
+                    }
+                }
+
+                if (memo != null) memo.addToTrail(act);
+            }
+
+            if (p < end || !moveWindow(tokenStart)) {
+                failPos = p;
+                break;
+            }
+        }
+
+        if (memo != null) memo.failTrail();
+        if (numbers != null) numbers.reset();
+
+        if (finState == null || failPos == end && stopped) { // a pending token in follow mode isn't returned
+            return false;
+        }
+
+        closeGroups(finState, tokenEnd);
+
+        accumulated = numbers != null && !finState.skip;
+        pos = tokenEnd;
+
+        return true;
+    }
+
+    @Override
+    final protected char[] tokenText() {
+        decodeToken();
+
+        return chars;
+    }
+
+    @Override
+    final protected int textIndex(int position) {
+        return charIndex[position - tokenStart];
+    }
+
+    @Override
+    final protected int tokenStartPos() {
+        return tokenStart;
+    }
+
+    @Override
+    final protected int tokenEndPos() {
+        return tokenEnd;
+    }
+
+    // decodes the token into chars and sets the index of the char for the first byte of every character
+    private void decodeToken() {
+        if (decoded) {
+            return;
+        }
+
+        int length = tokenEnd - tokenStart;
+
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charIndex = new int[chars.length + 1];
+        }
+
+        int n = 0;
+
+        for (int p = tokenStart; p < tokenEnd;) {
+            int b = input.get(base + p) & 0xff;
+            int len = b < 0x80 ? 1 : b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+            int codePoint = len == 1 ? b : b & (0x7F >> len);
+
+            charIndex[p - tokenStart] = n;
+
+            for (int i = 1; i < len; i++) {
+                codePoint = codePoint << 6 | (input.get(base + p + i) & 0x3F);
+            }
+
+            n += Character.toChars(codePoint, chars, n);
+            p += len;
+        }
+
+        charIndex[length] = n;
+        decoded = true;
+    }
+
+    private String decode(int from, int to) {
+        byte[] text = new byte[to - from];
+
+        for (int p = from; p < to; p++) {
+            text[p - from] = input.get(base + p);
+        }
+
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Counts the lines and columns up to the position to. The text before
+     * the current window is mapped again if it hasn't been counted.
+     */
+    private void countLines(int to) {
+        try {
+            while (lineOffset < windowOffset) {
+                int length = (int) Math.min(windowSize, windowOffset - lineOffset);
+
+                countLines(channel.map(FileChannel.MapMode.READ_ONLY, lineOffset, length), 0, length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        countLines(input, base + (int) (lineOffset - windowOffset), base + to);
+    }
+
+    private void countLines(ByteBuffer buffer, int from, int to) {
+        for (int p = from; p < to; p++) {
+            int b = buffer.get(p) & 0xff;
+
+            if (b == '\n') {
+                line++;
+                column = 1;
+            } else if (b == '\r') {
+                column = 1;
+            } else if ((b & 0xC0) != 0x80) {
+                column += b >= 0xF0 ? 2 : 1;
+            }
+        }
+
+        lineOffset += Math.max(0, to - from);
+    }
+
+    @Override
+    final public int getYPos() {
+        return (int) getStartLine();
+    }
+
+    // the line of the token start as long for files with more than 2^31 lines
+    final public long getStartLine() {
+        countLines(tokenStart);
+
+        return line;
+    }
+
+    // the column of the token start in chars
+    @Override
+    final public int getXPos() {
+        countLines(tokenStart);
+
+        return column;
+    }
+}
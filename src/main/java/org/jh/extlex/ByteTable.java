@@ -0,0 +1,258 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jh.extlex.util.IntList;
+
+/**
+ * The DFA of the tables for UTF-8 encoded bytes. The nodes with an id lower
+ * than stateCount are the states of the tables. From them the first byte of
+ * a character leads to an inner node, which waits for the next byte of the
+ * character. The last byte of a character leads to a state of the tables.
+ * Its actions are the actions of the character transition. A character
+ * above U+FFFF is two chars in the tables, so its transition combines the
+ * transitions of both surrogates. A token can't end inside its bytes, so if
+ * the low surrogate has no transition, e.g. for '.', the whole character is
+ * consumed by the transition of the high surrogate.
+ * The next node for a node and a byte is next[node * 256 + byte]. Inner
+ * nodes only have transitions for continuation bytes. Equal inner nodes are
+ * created only once. Overlong encodings and surrogates have no transition.
+ * firstBytes contains the bytes with which a token can start.
+ */
+final class ByteTable {
+    static final int NO_STATE = DTable.NO_STATE;
+
+    final int stateCount;
+    final int startState;
+    final int[] next;
+    final int[] actions;
+    final int[] program;
+    final boolean[] firstBytes = new boolean[256];
+
+    private ByteTable(int stateCount, int startState, int[] next, int[] actions, int[] program) {
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.next = next;
+        this.actions = actions;
+        this.program = program;
+
+        for (int b = 0; b < 256; b++) {
+            firstBytes[b] = next[startState << 8 | b] != NO_STATE;
+        }
+    }
+
+    // returns null for recursive patterns, because their stack is only used by the Scanner
+    static ByteTable create(DTable<?> table) {
+        return table.recursive ? null : new Builder(table).build();
+    }
+
+    private static final class Builder {
+        private final DTable<?> table;
+        private final List<int[]> nextRows = new ArrayList<>();
+        private final List<int[]> actionRows = new ArrayList<>();
+        private final Map<DTable.Column, Integer> nodes = new HashMap<>();
+        private final IntList programList = new IntList();
+        private final Map<Long, Integer> combinedActions = new HashMap<>();
+        private final Map<Long, Integer> surrogateLeafs = new HashMap<>();
+
+        Builder(DTable<?> table) {
+            this.table = table;
+
+            for (int action : table.program) {
+                programList.add(action);
+            }
+        }
+
+        ByteTable build() {
+            for (int state = 0; state < table.stateCount; state++) {
+                nextRows.add(null);
+                actionRows.add(null);
+            }
+
+            for (int state = 0; state < table.stateCount; state++) {
+                int[] nextRow = emptyRow();
+                int[] actionRow = new int[256];
+                int row = state * table.classCount;
+
+                for (int ch = 0; ch < 0x80; ch++) {
+                    nextRow[ch] = table.next[row + table.classOf(ch)];
+                    actionRow[ch] = table.trActions[row + table.classOf(ch)];
+                }
+
+                for (int lead = 0xC2; lead <= 0xDF; lead++) {
+                    nextRow[lead] = leaf(state, (lead & 0x1F) << 6);
+                }
+
+                for (int lead = 0xE0; lead <= 0xEF; lead++) {
+                    int[] node = emptyRow();
+                    int low = lead == 0xE0 ? 0xA0 : 0x80;
+                    int high = lead == 0xED ? 0x9F : 0xBF;
+
+                    for (int second = low; second <= high; second++) {
+                        node[second] = leaf(state, (lead & 0x0F) << 12 | (second & 0x3F) << 6);
+                    }
+
+                    nextRow[lead] = node(node, new int[256]);
+                }
+
+                for (int lead = 0xF0; lead <= 0xF4; lead++) {
+                    int[] node = emptyRow();
+                    int low = lead == 0xF0 ? 0x90 : 0x80;
+                    int high = lead == 0xF4 ? 0x8F : 0xBF;
+
+                    for (int second = low; second <= high; second++) {
+                        int[] thirdNode = emptyRow();
+
+                        for (int third = 0x80; third <= 0xBF; third++) {
+                            int codePoint = (lead & 0x07) << 18 | (second & 0x3F) << 12 | (third & 0x3F) << 6;
+
+                            thirdNode[third] = surrogateLeaf(state, codePoint);
+                        }
+
+                        node[second] = node(thirdNode, new int[256]);
+                    }
+
+                    nextRow[lead] = node(node, new int[256]);
+                }
+
+                nextRows.set(state, nextRow);
+                actionRows.set(state, actionRow);
+            }
+
+            int[] next = new int[nextRows.size() * 256];
+            int[] actions = new int[nextRows.size() * 256];
+
+            for (int node = 0; node < nextRows.size(); node++) {
+                System.arraycopy(nextRows.get(node), 0, next, node * 256, 256);
+                System.arraycopy(actionRows.get(node), 0, actions, node * 256, 256);
+            }
+
+            return new ByteTable(table.stateCount, table.startState, next, actions, programList.toArray());
+        }
+
+        private static int[] emptyRow() {
+            int[] row = new int[256];
+
+            Arrays.fill(row, NO_STATE);
+
+            return row;
+        }
+
+        // the node for the last byte of the 64 characters starting at first
+        private int leaf(int state, int first) {
+            int[] nextRow = emptyRow();
+            int[] actionRow = new int[256];
+            int row = state * table.classCount;
+
+            for (int i = 0; i < 64; i++) {
+                nextRow[0x80 + i] = table.next[row + table.classOf(first + i)];
+                actionRow[0x80 + i] = table.trActions[row + table.classOf(first + i)];
+            }
+
+            return node(nextRow, actionRow);
+        }
+
+        // the node for the last byte of the 64 code points above U+FFFF starting at first
+        private int surrogateLeaf(int state, int first) {
+            int high = Character.highSurrogate(first);
+            int cell = state * table.classCount + table.classOf(high);
+            int highState = table.next[cell];
+
+            if (highState == NO_STATE) {
+                return NO_STATE;
+            }
+
+            int highActions = table.trActions[cell];
+            long key = ((long) highState * 0x10000 + highActions) * 0x10000 + (Character.lowSurrogate(first) & 0x3FF);
+            Integer node = surrogateLeafs.get(key);
+
+            if (node == null) {
+                int[] nextRow = emptyRow();
+                int[] actionRow = new int[256];
+                int row = highState * table.classCount;
+
+                for (int i = 0; i < 64; i++) {
+                    int lowCell = row + table.classOf(Character.lowSurrogate(first + i));
+
+                    if (table.next[lowCell] != NO_STATE) {
+                        nextRow[0x80 + i] = table.next[lowCell];
+                        actionRow[0x80 + i] = combine(highActions, table.trActions[lowCell]);
+                    } else {
+                        nextRow[0x80 + i] = highState;
+                        actionRow[0x80 + i] = highActions;
+                    }
+                }
+
+                surrogateLeafs.put(key, node = node(nextRow, actionRow));
+            }
+
+            return node;
+        }
+
+        // the program entry with the actions of both entries
+        private int combine(int first, int second) {
+            if (first == 0 || second == 0) {
+                return first + second;
+            }
+
+            long key = (long) first << 32 | second;
+            Integer pc = combinedActions.get(key);
+
+            if (pc == null) {
+                int[] program = table.program;
+
+                combinedActions.put(key, pc = programList.size());
+                programList.add(program[first] + program[second]);
+
+                for (int i = 1; i <= program[first]; i++) {
+                    programList.add(program[first + i]);
+                }
+
+                for (int i = 1; i <= program[second]; i++) {
+                    programList.add(program[second + i]);
+                }
+            }
+
+            return pc;
+        }
+
+        private int node(int[] nextRow, int[] actionRow) {
+            if (Arrays.stream(nextRow).allMatch(next -> next == NO_STATE)) {
+                return NO_STATE;
+            }
+
+            int[] content = Arrays.copyOf(nextRow, 512);
+
+            System.arraycopy(actionRow, 0, content, 256, 256);
+
+            DTable.Column key = new DTable.Column(content);
+            Integer node = nodes.get(key);
+
+            if (node == null) {
+                nodes.put(key, node = nextRows.size());
+                nextRows.add(nextRow);
+                actionRows.add(actionRow);
+            }
+
+            return node;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * The position from which a scan can be resumed, e.g. after a restart of the
+ * process. It holds the offset of the first character (or byte for bytes)
+ * which is not part of a completed token, its line and column and, for a
+ * PushScanner, the characters and bytes fed after this offset. These are
+ * scanned again when the scan is resumed, so the state of the DFA, the stack
+ * of recursive states and the groups of an incomplete token are restored
+ * without storing the tables of the Tokenizer.
+ * Line and column are 0 if the positions were switched off.
+ */
+public final class Checkpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
+
+    private final long offset;
+    private final long line;
+    private final int column;
+    private final char[] pendingChars;
+    private final byte[] pendingBytes;
+
+    Checkpoint(long offset, long line, int column, char[] pendingChars, byte[] pendingBytes) {
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.pendingChars = pendingChars;
+        this.pendingBytes = pendingBytes;
+    }
+
+    public long getOffset() { return offset; }
+    public long getLine() { return line; }
+    public int getColumn() { return column; }
+    char[] getPendingChars() { return pendingChars; }
+    byte[] getPendingBytes() { return pendingBytes; }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeLong(offset);
+        out.writeLong(line);
+        out.writeInt(column);
+        out.writeInt(pendingChars.length);
+
+        for (char ch : pendingChars) {
+            out.writeChar(ch);
+        }
+
+        out.writeInt(pendingBytes.length);
+        out.write(pendingBytes);
+    }
+
+    public static Checkpoint readFrom(DataInput in) throws IOException {
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unknown version of the checkpoint!");
+        }
+
+        long offset = in.readLong();
+        long line = in.readLong();
+        int column = in.readInt();
+        char[] pendingChars = new char[in.readInt()];
+
+        for (int i = 0; i < pendingChars.length; i++) {
+            pendingChars[i] = in.readChar();
+        }
+
+        byte[] pendingBytes = new byte[in.readInt()];
+
+        in.readFully(pendingBytes);
+
+        return new Checkpoint(offset, line, column, pendingChars, pendingBytes);
+    }
+}
@@ -19,13 +19,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import java.util.TreeMap;
-import java.util.function.Consumer;
-import static org.jh.extlex.Logger.DEBUG;
 import org.jh.extlex.exception.AmbiguousRuleException;
 import org.jh.extlex.util.CharRange;
 import org.jh.extlex.util.CharSet;
+import org.jh.extlex.util.IntList;
 import org.jh.extlex.util.SortedList;
 
 /**
@@ -33,17 +31,18 @@ import org.jh.extlex.util.SortedList;
  * @author Jörg
  */
 public class DFABuilder<T> {
-    private Stack<DState> stackOfState;
+    private static final int MAX_LOOP_RANGES = 4;
     private final Map<DState, List<String>> debugInfoDState = new TreeMap<>();
     private final SingleNumber checkNo;
     private final SingleNumber stateNo;
-    private final List<GroupInfo> groupInfoList;
+    private final List<BracketInfo> bracketInfoList;
     private final int maxGroupCount;
+    private final List<DState> allStates = new ArrayList<>();
 
-    public DFABuilder(SingleNumber checkNo, SingleNumber stateNo, List<GroupInfo> groupInfoList, int maxGroupCount) {
+    public DFABuilder(SingleNumber checkNo, SingleNumber stateNo, List<BracketInfo> bracketInfoList, int maxGroupCount) {
         this.checkNo = checkNo;
         this.stateNo = stateNo;
-        this.groupInfoList = groupInfoList;
+        this.bracketInfoList = bracketInfoList;
         this.maxGroupCount = maxGroupCount;
     }
     
@@ -68,8 +67,6 @@ public class DFABuilder<T> {
     }
 
     protected DRootState createDFA(NDState root) throws Exception {
-        stackOfState = new Stack<>();
-
         // put first step as DState node in queue with the start node as list!
         SortedList<NDState> actStateList = new SortedList<>(); // sorted by their stateNo
         List<DState> dstqueues = new ArrayList<>();
@@ -81,7 +78,7 @@ public class DFABuilder<T> {
         DState dstart = createDState(actStateList, stateName);
         List<DState> rootStateList = new ArrayList<>();
         Map<String, DState> dstates = new HashMap<>();
-        List<Consumer<Integer>> groupSavers = new ArrayList<>();
+        IntList groupActions = new IntList();
 
         rootStateList.add(dstart);
         dstates.put(stateName, dstart);
@@ -100,7 +97,7 @@ public class DFABuilder<T> {
             // the character range is orderered
             for (CharRange cr : scl) {
                 SortedList<NDState> nextStates
-                    = getNextStates(states, stateNo, checkNo.getNextNumber(), cr, groupSavers, recursivState);
+                    = getNextStates(states, stateNo, checkNo.getNextNumber(), cr, groupActions, recursivState);
                 String nextStateName = DState.statesToName(nextStates);
                 DState nextDState = dstates.get(nextStateName);
                 boolean createNextDState = false;
@@ -113,7 +110,7 @@ public class DFABuilder<T> {
                     dstqueues.add(nextDState);
                 } else {
                     // Only merge characters if there is no group && no recursive state
-                    if (prevState == nextDState && prev != null && groupSavers.isEmpty()
+                    if (prevState == nextDState && prev != null && groupActions.isEmpty()
                         && !recursivState.exists() && prev.couldBeExtendedBy(cr)) {
                         continue;
                     }
@@ -146,14 +143,7 @@ public class DFABuilder<T> {
                         rstate.find(cr, checkNo.getNextNumber(), x -> x.addRecState(lambdaState));
                     } else {
                         addDStateDebugInfo(actdstate, "push recursive state for '" + cr + "' to " + nextStateName);
-                        if (Logger.DEBUG) {
-                            groupSavers.add(x -> {
-                                DEBUG(String.format("  Transition: push %s on stack%n", lambdaState.getName()));
-                                stackOfState.add(lambdaState);
-                            });
-                        } else {
-                            groupSavers.add(x -> stackOfState.add(lambdaState));
-                        }
+                        groupActions.add(Action.push(lambdaState.getId()));
                     }
                 }
 
@@ -167,29 +157,168 @@ public class DFABuilder<T> {
                             } else {
                                 addDStateDebugInfo(actdstate, "push recursive state for '" + cr + "' to " + nextStateName);
                                 
-                                DState recState = state.getRecState();
-                                
-                                if (Logger.DEBUG) {
-                                    groupSavers.add(x -> {
-                                        DEBUG(String.format("  Transition: push %s on stack%n", recState.getName()));
-                                        stackOfState.add(recState);
-                                    });
-                                } else {
-                                    groupSavers.add(x -> stackOfState.add(recState));
-                                }
+                                groupActions.add(Action.push(state.getRecState().getId()));
                             }
                         }
                     }
                 }
 
-                prev = actdstate.addTransition(cr, nextDState, groupSavers);
-                prevState = groupSavers.isEmpty() ? nextDState : null;
+                prev = actdstate.addTransition(cr, nextDState, groupActions);
+                prevState = groupActions.isEmpty() ? nextDState : null;
 
                 recursivState.clear();
             }
         }
 
-        return new DRootState(rootStateList, groupInfoList, maxGroupCount, stackOfState, debugInfoDState);
+        findLoops();
+
+        return new DRootState(rootStateList, allStates, bracketInfoList, maxGroupCount, debugInfoDState,
+            findBacktrackingPatterns());
+    }
+
+    /*
+     * Sets the ranges of the characters, which lead from a state back to
+     * itself without actions. The scanner reads such runs of characters in a
+     * loop without looking up the transitions. Only states with at most
+     * MAX_LOOP_RANGES ranges are used.
+     */
+    private void findLoops() {
+        IntList ranges = new IntList();
+
+        for (DState state : allStates) {
+            ranges.clear();
+
+            for (Transition<DState> t : state.getTransitions()) {
+                DTransition<DState> trans = (DTransition<DState>) t;
+
+                if (trans.st == state && !trans.hasActions() && trans.lowChar <= Character.MAX_VALUE) {
+                    int high = Math.min(trans.highChar, Character.MAX_VALUE);
+
+                    if (!ranges.isEmpty() && ranges.get(ranges.size() - 1) + 1 == trans.lowChar) {
+                        ranges.pop();
+                    } else {
+                        ranges.add(trans.lowChar);
+                    }
+
+                    ranges.add(high);
+                }
+            }
+
+            if (!ranges.isEmpty() && ranges.size() <= MAX_LOOP_RANGES * 2) {
+                char[] loopRanges = new char[ranges.size()];
+
+                for (int i = 0; i < loopRanges.length; i++) {
+                    loopRanges[i] = (char) ranges.get(i);
+                }
+
+                state.setLoopRanges(loopRanges);
+            }
+        }
+    }
+
+    /*
+     * After a final state the scanner reads ahead for a longer token. If the
+     * read ahead can run through a cycle of non final states, an unbounded
+     * number of characters may be read and read again after the backtracking.
+     * First all non final states reachable from a final state are collected.
+     * Then the states without successors in this set are removed until only
+     * states remain, which can reach a cycle. The patterns of the final states
+     * reachable from the remaining states are returned ordered by their rule.
+     */
+    private List<String> findBacktrackingPatterns() {
+        int noOfStates = allStates.size();
+        boolean[] ahead = new boolean[noOfStates];
+        IntList queue = new IntList();
+
+        for (DState state : allStates) {
+            if (state.isFinalState()) {
+                addNonFinalStates(state, ahead, queue);
+            }
+        }
+
+        for (int i = 0; i < queue.size(); i++) {
+            addNonFinalStates(allStates.get(queue.get(i)), ahead, queue);
+        }
+
+        int[] noOfSuccessors = new int[noOfStates];
+        List<IntList> predecessors = new ArrayList<>();
+        IntList removed = new IntList();
+
+        for (int id = 0; id < noOfStates; id++) {
+            predecessors.add(new IntList(1));
+        }
+
+        for (int i = 0; i < queue.size(); i++) {
+            int id = queue.get(i);
+
+            for (Transition<DState> t : allStates.get(id).getTransitions()) {
+                if (ahead[t.st.getId()]) {
+                    noOfSuccessors[id]++;
+                    predecessors.get(t.st.getId()).add(id);
+                }
+            }
+
+            if (noOfSuccessors[id] == 0) {
+                removed.add(id);
+            }
+        }
+
+        for (int i = 0; i < removed.size(); i++) {
+            IntList preds = predecessors.get(removed.get(i));
+
+            for (int j = 0; j < preds.size(); j++) {
+                if (--noOfSuccessors[preds.get(j)] == 0) {
+                    removed.add(preds.get(j));
+                }
+            }
+        }
+
+        for (int i = 0; i < removed.size(); i++) {
+            ahead[removed.get(i)] = false;
+        }
+
+        Map<Integer, String> patterns = new TreeMap<>();
+        boolean[] visited = new boolean[noOfStates];
+
+        for (int i = 0; i < queue.size(); i++) {
+            if (ahead[queue.get(i)]) {
+                collectPatterns(allStates.get(queue.get(i)), visited, patterns);
+            }
+        }
+
+        return new ArrayList<>(patterns.values());
+    }
+
+    private void addNonFinalStates(DState state, boolean[] ahead, IntList queue) {
+        for (Transition<DState> t : state.getTransitions()) {
+            int id = t.st.getId();
+
+            if (!t.st.isFinalState() && !ahead[id]) {
+                ahead[id] = true;
+                queue.add(id);
+            }
+        }
+    }
+
+    // adds the patterns of the final states reachable from state without passing a final state
+    private void collectPatterns(DState state, boolean[] visited, Map<Integer, String> patterns) {
+        IntList queue = new IntList();
+
+        queue.add(state.getId());
+        visited[state.getId()] = true;
+
+        for (int i = 0; i < queue.size(); i++) {
+            for (Transition<DState> t : allStates.get(queue.get(i)).getTransitions()) {
+                if (t.st.isFinalState()) {
+                    DStateFin<?> fin = (DStateFin<?>) t.st;
+
+                    patterns.put(fin.ruleNo, fin.regexp);
+                } else if (!visited[t.st.getId()]) {
+                    visited[t.st.getId()] = true;
+                    queue.add(t.st.getId());
+                }
+            }
+        }
     }
 
     private void getNextChars(SortedList<NDState> states, CharSet scl, int checkNo) {
@@ -201,15 +330,15 @@ public class DFABuilder<T> {
     }
 
     private SortedList<NDState> getNextStates(SortedList<NDState> states,
-        SingleNumber stateNo, int checkNo, CharRange cr, List<Consumer<Integer>> groupSavers,
+        SingleNumber stateNo, int checkNo, CharRange cr, IntList groupActions,
         MutableRecursiveState recursivState) throws Exception {
         SortedList<NDState> nextStates = new SortedList<>();
 
-        groupSavers.clear();
+        groupActions.clear();
 
         for (NDState is : states) {
             is.setUnassignedNO(stateNo); 
-            is.getNextStates(nextStates, stateNo, checkNo, cr, groupSavers, recursivState);
+            is.getNextStates(nextStates, stateNo, checkNo, cr, groupActions, recursivState);
         }
 
         return nextStates;
@@ -241,9 +370,13 @@ public class DFABuilder<T> {
             }
         }
 
-        return fstate == null
-            ? new DState(states, statesName)
-            : new DStateFin<>(states, statesName, fstate.regexp, fstate.init, fstate.matchToken, closingBrackets);
+        DState dstate = fstate == null
+            ? new DState(allStates.size(), states, statesName)
+            : new DStateFin<>(allStates.size(), states, statesName, fstate.regexp, fstate.ruleNo, fstate.init, fstate.matchToken, fstate.primitiveToken, fstate.type, fstate.skip, closingBrackets);
+
+        allStates.add(dstate);
+
+        return dstate;
     }
 
     @SuppressWarnings("unchecked")
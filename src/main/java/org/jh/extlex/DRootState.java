@@ -21,16 +21,18 @@ import java.util.Stack;
 
 class DRootState {
     private final List<DState> rootStates;
-    private final List<GroupInfo> groupInfoList;
-    private final Stack<DState> stackOfState;
+    private final List<DState> states;
+    private final List<BracketInfo> bracketInfoList;
     private final Map<DState, List<String>> debugInfo;
+    private final List<String> backtrackingPatterns;
     
-    DRootState(List<DState> rootList, List<GroupInfo> groupInfoList,
-        int maxGroupCount, Stack<DState> stackOfState, Map<DState, List<String>> debugInfo) {
+    DRootState(List<DState> rootList, List<DState> states, List<BracketInfo> bracketInfoList,
+        int maxGroupCount, Map<DState, List<String>> debugInfo, List<String> backtrackingPatterns) {
         this.rootStates = rootList;
-        this.groupInfoList = groupInfoList;
-        this.stackOfState = stackOfState;
+        this.states = states;
+        this.bracketInfoList = bracketInfoList;
         this.debugInfo = debugInfo;
+        this.backtrackingPatterns = backtrackingPatterns;
     }
     
     protected List<DState> getRootStates() {
@@ -40,19 +42,26 @@ class DRootState {
         return rootStates.get(0);
     }
     
+    // all states of the DFA ordered by their id
+    protected List<DState> getStates() {
+        return states;
+    }
+    
     protected Map<DState, List<String>> getDebugInfo() {
         return debugInfo;
     }
     
-    protected List<GroupInfo> getGroupInfoList() {
-        return groupInfoList;
+    protected List<BracketInfo> getBracketInfoList() {
+        return bracketInfoList;
     }
     
-    protected Stack<DState> getStackOfState() {
-        return stackOfState;
+    // the patterns which may cause unbounded backtracking
+    protected List<String> getBacktrackingPatterns() {
+        return backtrackingPatterns;
     }
-
+    
     final private DState internalCheck(String word) {
+        Stack<DState> stackOfState = new Stack<>();
         DState act = getStartState(); 
         
         for (int i = 0, n = word.length(); i < n && act != null; i++) {
@@ -65,8 +74,6 @@ class DRootState {
             }
         }
         
-        stackOfState.clear();
-        
         return act;
     }
     
@@ -16,26 +16,35 @@
 package org.jh.extlex;
 
 import java.util.Iterator;
-import java.util.List;
 import java.util.Objects;
-import java.util.function.Consumer;
 import org.jh.extlex.util.SortedList;
 import org.jh.extlex.exception.DuplicateTransitionException;
 import org.jh.extlex.util.CharRange;
+import org.jh.extlex.util.IntList;
 import org.jh.extlex.util.RangeSet;
 
 public class DState extends State<DState> implements Comparable<DState> {
     private final SortedList<NDState> states; // sorted Lists of States by their stateNo
     private final RangeSet<DTransition<DState>> transitions = new RangeSet<>();
     private final String stateName;
+    private final int id;
+    private char[] loopRanges = null;
 
-    DState(SortedList<NDState> states, String stateName) {
+    DState(int id, SortedList<NDState> states, String stateName) {
+        this.id = id;
         this.states = states;
         this.stateName = stateName;
     }
 
     SortedList<NDState> getStates() { return states; }
     
+    final int getId() { return id; }
+
+    // the ranges of the characters, which lead back to this state without actions
+    final char[] getLoopRanges() { return loopRanges; }
+
+    final void setLoopRanges(char[] loopRanges) { this.loopRanges = loopRanges; }
+    
     public String getName() {
         return stateName;
     }
@@ -56,8 +65,8 @@ public class DState extends State<DState> implements Comparable<DState> {
         return sbuf.toString();
     }
 
-    DTransition<DState> addTransition(CharRange range, DState nextDState, List<Consumer<Integer>> groups) throws DuplicateTransitionException {
-        DTransition<DState> result = new DTransition<>(range, nextDState, groups);
+    DTransition<DState> addTransition(CharRange range, DState nextDState, IntList actions) throws DuplicateTransitionException {
+        DTransition<DState> result = new DTransition<>(range, nextDState, actions);
         
         if (transitions.add(result) != null) {
             throw new DuplicateTransitionException("DState(" + stateName + ") still contains a transition for '" + range.lowChar + "-" + range.highChar + "'!");
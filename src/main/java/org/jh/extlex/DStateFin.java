@@ -16,33 +16,45 @@
 package org.jh.extlex;
 
 import java.util.List;
-import java.util.function.Consumer;
 import org.jh.extlex.util.Initializer;
 import org.jh.extlex.util.SortedList;
 
-@SuppressWarnings("unchecked")
 public class DStateFin<T> extends DState {
-    String regexp;
-    Initializer init;
-    TokenMeth<T> matchToken;
-    static final Consumer<Integer>[] DEFAULT_GROUP = new Consumer[0];
+    final String regexp;
+    final int ruleNo;
+    final Initializer init;
+    final TokenMeth<T> matchToken;
+    // the token methods of an int, long or double pattern or null
+    final PrimitiveToken primitiveToken;
+    // the kind of number literal (see PrimitiveToken)
+    final int literal;
+    // the enum constant bound to the pattern or null
+    final Enum<?> type;
+    // a token of a pattern without token and group methods is skipped by the scanner
+    final boolean skip;
+    static final int[] NO_ACTIONS = new int[0];
 
-    private Consumer<Integer>[] groups = DEFAULT_GROUP;
+    private int[] closeActions = NO_ACTIONS;
     
-    DStateFin(SortedList<NDState> states, String stateName, String regexp, Initializer init, TokenMeth<T> matchToken, List<BracketInfo> closingBrackets) {
-        super(states, stateName);
+    DStateFin(int id, SortedList<NDState> states, String stateName, String regexp, int ruleNo, Initializer init, TokenMeth<T> matchToken, PrimitiveToken primitiveToken, Enum<?> type, boolean skip, List<BracketInfo> closingBrackets) {
+        super(id, states, stateName);
         
         this.regexp = regexp;
+        this.ruleNo = ruleNo;
         this.init = init;
         this.matchToken = matchToken;
+        this.primitiveToken = primitiveToken;
+        this.literal = primitiveToken != null ? primitiveToken.literal : PrimitiveToken.NO_LITERAL;
+        this.type = type;
+        this.skip = skip;
         
         if (!closingBrackets.isEmpty()) {
             int pos = 0;
             
-            groups = new Consumer[closingBrackets.size()];
+            closeActions = new int[closingBrackets.size()];
             
             for (BracketInfo bracketInfo : closingBrackets) {
-                groups[pos++] = bracketInfo::saveEndPos;
+                closeActions[pos++] = Action.close(bracketInfo.slot);
             }
         }
     }
@@ -65,9 +77,34 @@ public class DStateFin<T> extends DState {
         return super.compareTo(d);
     }
     
-    final public void saveGroupPos(int pos) {
-        for (Consumer<Integer> group : groups) {
-            group.accept(pos);
+    final int applyAsInt(char[] buffer, int start, int len) throws Exception {
+        if (primitiveToken == null || primitiveToken.intMeth == null) {
+            throw new IllegalStateException("The pattern " + regexp + " has no int token method!");
         }
+
+        return primitiveToken.intMeth.applyAsInt(buffer, start, len);
+    }
+
+    // the value of an int or long token method
+    final long applyAsLong(char[] buffer, int start, int len) throws Exception {
+        if (primitiveToken == null || primitiveToken.longMeth == null) {
+            throw new IllegalStateException("The pattern " + regexp + " has no long token method!");
+        }
+
+        return primitiveToken.longMeth.applyAsLong(buffer, start, len);
+    }
+
+    // the value of a double, long or int token method
+    final double applyAsDouble(char[] buffer, int start, int len) throws Exception {
+        if (primitiveToken == null) {
+            throw new IllegalStateException("The pattern " + regexp + " has no double token method!");
+        }
+
+        return primitiveToken.doubleMeth.applyAsDouble(buffer, start, len);
+    }
+
+    // the actions closing the groups which end with this final state
+    final int[] getCloseActions() {
+        return closeActions;
     }
 }
\ No newline at end of file
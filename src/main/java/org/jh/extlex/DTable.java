@@ -0,0 +1,359 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jh.extlex.util.IntList;
+
+/**
+ * The DFA of a DRootState compiled into flat tables.
+ * Every character is mapped to an equivalence class. Characters of the same
+ * class have the same transitions in every state. The next state for a state
+ * and a class is looked up in the table next[state * classCount + class].
+ * The character to class map is a two level table. The first level holds
+ * for the high byte of a character the start of its block of 256 classes.
+ * Equal blocks are only stored once.
+ * The actions of a transition or of a final state are stored in the array
+ * program. An entry starts with the number of actions followed by the actions.
+ * The tables trActions and finActions contain the start of the entry or 0
+ * if there are no actions.
+ * For states with a loop over some characters, loops contains the ranges of
+ * these characters (see TokenReader.readRun).
+ * The Scanner accumulates the value of a number literal only for the
+ * characters read in the numberStates (see NumberAccumulator).
+ * The tables are never changed after creation. Everything changed while
+ * scanning is kept in the Scanner. Only the SearchTables of the matchers and
+ * the ByteTable for UTF-8 input are created on their first use.
+ */
+final class DTable<T> {
+    static final int NO_STATE = -1;
+    private static final int BLOCK_SIZE = 256;
+    private static final int NO_OF_CHARS = Character.MAX_VALUE + 1;
+
+    final int stateCount;
+    final int classCount;
+    final int startState;
+    final int[] next;
+    final int[] trActions;
+    final int[] finActions;
+    final int[] program;
+    final DStateFin<T>[] finStates;
+    final int[] accept;
+    final char[][] loops;
+    final BracketInfo[] brackets;
+    final boolean recursive;
+    // true for the states on the way to the final state of a number literal, null without literals
+    final boolean[] numberStates;
+    final List<String> backtrackingPatterns;
+    final Prefilter prefilter;
+    private final char[] classBlocks = new char[NO_OF_CHARS / BLOCK_SIZE];
+    private final char[] classMap;
+    private volatile boolean searchTableCreated = false;
+    private SearchTable searchTable = null;
+    private volatile boolean byteTableCreated = false;
+    private ByteTable byteTable = null;
+    private volatile boolean byteSearchTableCreated = false;
+    private SearchTable byteSearchTable = null;
+
+    DTable(DRootState root) {
+        List<DState> stateList = root.getStates();
+        char[] classOfChar = new char[NO_OF_CHARS];
+        char[] firstChar = new char[NO_OF_CHARS];
+        IntList programList = new IntList();
+        Map<Column, Integer> programs = new HashMap<>();
+        Map<DTransition<DState>, Integer> actionsOfTrans = new IdentityHashMap<>();
+
+        programList.add(0); // 0 is used for no actions
+
+        this.stateCount = stateList.size();
+        this.startState = root.getStartState().getId();
+        this.brackets = root.getBracketInfoList().toArray(new BracketInfo[0]);
+        this.finActions = new int[stateCount];
+        @SuppressWarnings("unchecked")
+        DStateFin<T>[] fins = (DStateFin<T>[]) new DStateFin<?>[stateCount];
+
+        this.finStates = fins;
+        this.accept = new int[stateCount];
+        this.loops = new char[stateCount][];
+
+        for (DState state : stateList) {
+            loops[state.getId()] = state.getLoopRanges();
+
+            for (Transition<DState> t : state.getTransitions()) {
+                DTransition<DState> trans = (DTransition<DState>) t;
+
+                if (trans.hasActions()) {
+                    actionsOfTrans.put(trans, addProgram(trans.getActions(), programList, programs));
+                }
+            }
+
+            if (state instanceof DStateFin) {
+                @SuppressWarnings("unchecked")
+                DStateFin<T> fin = (DStateFin<T>) state;
+
+                finStates[state.getId()] = fin;
+                finActions[state.getId()] = addProgram(fin.getCloseActions(), programList, programs);
+                accept[state.getId()] = fin.ruleNo;
+            } else {
+                accept[state.getId()] = -1;
+            }
+        }
+
+        this.program = programList.toArray();
+        this.recursive = hasPushAction(program);
+        this.backtrackingPatterns = Collections.unmodifiableList(root.getBacktrackingPatterns());
+        this.classCount = createClasses(stateList, actionsOfTrans, classOfChar, firstChar);
+        this.classMap = createClassMap(classOfChar);
+        this.next = new int[stateCount * classCount];
+        this.trActions = new int[stateCount * classCount];
+
+        Arrays.fill(next, NO_STATE);
+
+        for (DState state : stateList) {
+            int row = state.getId() * classCount;
+
+            for (int cls = 0; cls < classCount; cls++) {
+                DTransition<DState> trans = state.getTransition(firstChar[cls]);
+
+                if (trans != null) {
+                    next[row + cls] = trans.st.getId();
+
+                    if (trans.hasActions()) {
+                        trActions[row + cls] = actionsOfTrans.get(trans);
+                    }
+                }
+            }
+        }
+
+        this.numberStates = findNumberStates();
+
+        this.prefilter = Prefilter.create(this);
+    }
+
+    private static int addProgram(int[] actions, IntList programList, Map<Column, Integer> programs) {
+        if (actions.length == 0) {
+            return 0;
+        }
+
+        Column key = new Column(actions);
+        Integer pos = programs.get(key);
+
+        if (pos == null) {
+            programs.put(key, pos = programList.size());
+            programList.add(actions.length);
+
+            for (int action : actions) {
+                programList.add(action);
+            }
+        }
+
+        return pos;
+    }
+
+    // the states from which the final state of a number literal can be reached or null
+    private boolean[] findNumberStates() {
+        boolean[] states = new boolean[stateCount];
+        boolean found = false;
+
+        for (int state = 0; state < stateCount; state++) {
+            if (finStates[state] != null && finStates[state].literal != PrimitiveToken.NO_LITERAL) {
+                states[state] = found = true;
+            }
+        }
+
+        if (!found) {
+            return null;
+        }
+
+        for (boolean changed = true; changed;) {
+            changed = false;
+
+            for (int state = 0; state < stateCount; state++) {
+                for (int cell = state * classCount, end = cell + classCount; !states[state] && cell < end; cell++) {
+                    if (next[cell] != NO_STATE && states[next[cell]]) {
+                        states[state] = changed = true;
+                    }
+                }
+            }
+        }
+
+        return states;
+    }
+
+    private static boolean hasPushAction(int[] program) {
+        for (int pc = 1; pc < program.length; pc += program[pc] + 1) {
+            for (int i = 1; i <= program[pc]; i++) {
+                if (Action.op(program[pc + i]) == Action.PUSH) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Splits the characters into intervals at every border of a transition.
+     * Intervals with the same target and the same transition in every state
+     * are merged into one class.
+     */
+    private static int createClasses(List<DState> states, Map<DTransition<DState>, Integer> actionsOfTrans,
+        char[] classOfChar, char[] firstChar) {
+        boolean[] border = new boolean[NO_OF_CHARS + 1];
+
+        border[0] = border[NO_OF_CHARS] = true;
+
+        for (DState state : states) {
+            for (Transition<DState> t : state.getTransitions()) {
+                if (t.lowChar <= Character.MAX_VALUE) {
+                    border[t.lowChar] = true;
+                    border[Math.min(t.highChar, Character.MAX_VALUE) + 1] = true;
+                }
+            }
+        }
+
+        Map<Column, Integer> classes = new HashMap<>();
+
+        for (int low = 0, high; low < NO_OF_CHARS; low = high) {
+            for (high = low + 1; !border[high]; high++);
+
+            int[] column = new int[states.size() * 2];
+
+            for (DState state : states) {
+                DTransition<DState> trans = state.getTransition(low);
+
+                if (trans != null) {
+                    column[state.getId() * 2] = trans.st.getId() + 1;
+
+                    if (trans.hasActions()) {
+                        column[state.getId() * 2 + 1] = actionsOfTrans.get(trans);
+                    }
+                }
+            }
+
+            Column key = new Column(column);
+            Integer cls = classes.get(key);
+
+            if (cls == null) {
+                firstChar[classes.size()] = (char) low;
+                classes.put(key, cls = classes.size());
+            }
+
+            Arrays.fill(classOfChar, low, high, (char) cls.intValue());
+        }
+
+        return classes.size();
+    }
+
+    private char[] createClassMap(char[] classOfChar) {
+        Map<Column, Integer> blocks = new HashMap<>();
+        int[] block = new int[BLOCK_SIZE];
+        char[] map = new char[NO_OF_CHARS];
+        int size = 0;
+
+        for (int b = 0; b < classBlocks.length; b++) {
+            int start = b * BLOCK_SIZE;
+
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                block[i] = classOfChar[start + i];
+            }
+
+            Column key = new Column(block.clone());
+            Integer pos = blocks.get(key);
+
+            if (pos == null) {
+                System.arraycopy(classOfChar, start, map, size, BLOCK_SIZE);
+                blocks.put(key, pos = size);
+                size += BLOCK_SIZE;
+            }
+
+            classBlocks[b] = (char) pos.intValue();
+        }
+
+        return Arrays.copyOf(map, size);
+    }
+
+    final int classOf(int ch) {
+        return classMap[classBlocks[ch >>> 8] + (ch & 0xff)];
+    }
+
+    // returns null if no search table can be created for these tables
+    final SearchTable getSearchTable() {
+        if (!searchTableCreated) {
+            synchronized (this) {
+                if (!searchTableCreated) {
+                    searchTable = SearchTable.create(this);
+                    searchTableCreated = true;
+                }
+            }
+        }
+
+        return searchTable;
+    }
+
+    // returns null if no byte table can be created for these tables
+    final ByteTable getByteTable() {
+        if (!byteTableCreated) {
+            synchronized (this) {
+                if (!byteTableCreated) {
+                    byteTable = ByteTable.create(this);
+                    byteTableCreated = true;
+                }
+            }
+        }
+
+        return byteTable;
+    }
+
+    // returns null if no search table can be created for the byte table
+    final SearchTable getByteSearchTable() {
+        if (!byteSearchTableCreated) {
+            synchronized (this) {
+                if (!byteSearchTableCreated) {
+                    byteSearchTable = getByteTable() != null ? SearchTable.create(getByteTable(), this) : null;
+                    byteSearchTableCreated = true;
+                }
+            }
+        }
+
+        return byteSearchTable;
+    }
+
+    static final class Column {
+        private final int[] values;
+        private final int hash;
+
+        Column(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Column && Arrays.equals(values, ((Column) obj).values);
+        }
+    }
+}
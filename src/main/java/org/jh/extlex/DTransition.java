@@ -15,30 +15,17 @@
  */
 package org.jh.extlex;
 
-import java.util.List;
-import java.util.function.Consumer;
 import org.jh.extlex.util.CharRange;
+import org.jh.extlex.util.IntList;
 
-@SuppressWarnings("unchecked")
 public class DTransition<S> extends Transition<S> {
-    private static final Consumer<Integer>[] DEFAULT_GROUP = new Consumer[0];
-    private Consumer<Integer>[] groups;
+    private static final int[] NO_ACTIONS = new int[0];
+    private final int[] actions;
     
-    public DTransition(CharRange range, S nextDState, List<Consumer<Integer>> groups) {
+    public DTransition(CharRange range, S nextDState, IntList actions) {
         super(range, nextDState);
         
-        this.groups = groups.isEmpty()? DEFAULT_GROUP : toArray(groups);
-    }
-    
-    final Consumer<Integer>[] toArray(List<Consumer<Integer>> list) {
-        Consumer<Integer>[] result = (Consumer<Integer>[])new Consumer[list.size()];
-        int i = 0;
-        
-        for (Consumer<Integer> cons : list) {
-            result[i++] = cons;
-        }
-        
-        return result;
+        this.actions = actions.isEmpty()? NO_ACTIONS : actions.toArray();
     }
     
     @Override
@@ -46,18 +33,16 @@ public class DTransition<S> extends Transition<S> {
         return lowChar;
     }
 
-    public boolean hasGroups() {
-        return groups.length > 0;
+    public boolean hasActions() {
+        return actions.length > 0;
+    }
+    
+    final int[] getActions() {
+        return actions;
     }
     
     @Override
     final public boolean equals(Object obj) {
         return super.equals(obj);
     }
-    
-    public void saveGroupPos(int pos) {
-        for (Consumer<Integer> cons : groups) {
-            cons.accept(pos);
-        }
-    }
 }
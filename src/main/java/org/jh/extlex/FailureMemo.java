@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.Arrays;
+import org.jh.extlex.util.IntList;
+
+/**
+ * Remembers the pairs of state and position from which no final state can be
+ * reached (Reps, "Maximal-munch" tokenization in linear time, 1998).
+ * After a final state the scanner reads ahead for a longer token. The states
+ * passed after the last final state are kept in a trail. If the read ahead
+ * fails, all pairs of the trail are stored as failed. The next tokens stop
+ * as soon as they reach a failed pair instead of reading the same characters
+ * again. Therefore every pair is read at most twice and the scan is linear.
+ * This is only valid without recursive states, because then the result of
+ * a pair also depends on the stack.
+ * The pairs are stored in an open addressing hash table. Entries of an old
+ * generation are invalid, so the table is cleared by a new generation.
+ * The positions wrap around after 2^31 characters, so they are only compared
+ * by their difference.
+ */
+final class FailureMemo {
+    private static final int MIN_CAPACITY = 64;
+
+    private final IntList trail = new IntList();
+    private int trailPos = 0;
+    private long[] keys = new long[MIN_CAPACITY];
+    private int[] generations = new int[MIN_CAPACITY];
+    private int generation = 1;
+    private int size = 0;
+    private int maxPos = -1;
+
+    private static long key(int state, int pos) {
+        return (long) pos << 32 | state;
+    }
+
+    private static int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (h >>> 32) & mask;
+    }
+
+    // starts a new trail after the final state at the position pos
+    void startTrail(int pos) {
+        trail.clear();
+        trailPos = pos;
+    }
+
+    void addToTrail(int state) {
+        trail.add(state);
+    }
+
+    // adds the state for the count positions of a run of its self loop
+    void addToTrail(int state, int count) {
+        for (int i = 0; i < count; i++) {
+            trail.add(state);
+        }
+    }
+
+    // the read ahead failed, all pairs of the trail are stored
+    void failTrail() {
+        for (int i = 0, n = trail.size(); i < n; i++) {
+            add(trail.get(i), trailPos + 1 + i);
+        }
+
+        trail.clear();
+    }
+
+    boolean hasFailed(int state, int pos) {
+        if (size == 0) {
+            return false;
+        }
+
+        long key = key(state, pos);
+        int mask = keys.length - 1;
+
+        for (int i = hash(key, mask); generations[i] == generation; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // removes all pairs if no pair is after the position pos
+    void clearBefore(int pos) {
+        if (size > 0 && maxPos - pos <= 0) {
+            clear();
+        }
+    }
+
+    void clear() {
+        size = 0;
+        maxPos = -1;
+
+        if (++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    private void add(int state, int pos) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        long key = key(state, pos);
+        int mask = keys.length - 1;
+        int i = hash(key, mask);
+
+        for (; generations[i] == generation; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return;
+            }
+        }
+
+        keys[i] = key;
+        generations[i] = generation;
+        size++;
+        maxPos = size == 1 || pos - maxPos > 0 ? pos : maxPos;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldGenerations = generations;
+        int mask = oldKeys.length * 2 - 1;
+
+        keys = new long[oldKeys.length * 2];
+        generations = new int[oldKeys.length * 2];
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldGenerations[j] == generation) {
+                int i = hash(oldKeys[j], mask);
+
+                while (generations[i] == generation) {
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = oldKeys[j];
+                generations[i] = generation;
+            }
+        }
+    }
+}
@@ -19,13 +19,28 @@ import org.jh.extlex.util.Initializer;
 
 public class FinState<T> extends NDState {
     String regexp;
+    int ruleNo;
     Initializer init;
     TokenMeth<T> matchToken;
+    // the token methods of an int, long or double pattern or null
+    PrimitiveToken primitiveToken;
+    // the enum constant bound to the pattern or null
+    Enum<?> type;
+    boolean skip;
     
+    // a final state without rule number, its tokens are skipped if it has no token method
     public FinState(String regexp, Initializer init, TokenMeth<T> matchToken) {
+        this(regexp, -1, init, matchToken, null, null, matchToken == null);
+    }
+
+    FinState(String regexp, int ruleNo, Initializer init, TokenMeth<T> matchToken, PrimitiveToken primitiveToken, Enum<?> type, boolean skip) {
         this.regexp = regexp;
+        this.ruleNo = ruleNo;
         this.init = init;
         this.matchToken = matchToken;
+        this.primitiveToken = primitiveToken;
+        this.type = type;
+        this.skip = skip;
     }
     
     @Override public final boolean isFinalState() { return true; }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.Arrays;
+
+/**
+ * Start and end positions of the groups found in the actual token.
+ * Every BracketInfo has a slot. A group may be opened several times before it
+ * is closed e.g. in recursive expressions. Therefore the open positions of a
+ * slot are chained and the last opened one is closed first.
+ * The closed groups are kept in the order of their end position.
+ * All positions are kept in int arrays which are reused for every token.
+ */
+final class GroupPositions {
+    private final int[] lastOpen;
+    private int[] openPos = new int[8];
+    private int[] prevOpen = new int[8];
+    private int openCount = 0;
+    private int[] slots = new int[8];
+    private int[] startPos = new int[8];
+    private int[] endPos = new int[8];
+    private int count = 0;
+
+    GroupPositions(int noOfSlots) {
+        lastOpen = new int[noOfSlots];
+
+        Arrays.fill(lastOpen, -1);
+    }
+
+    void clear() {
+        if (openCount > 0) {
+            Arrays.fill(lastOpen, -1);
+            openCount = 0;
+        }
+
+        count = 0;
+    }
+
+    void open(int slot, int pos) {
+        if (openCount == openPos.length) {
+            openPos = Arrays.copyOf(openPos, openCount * 2);
+            prevOpen = Arrays.copyOf(prevOpen, openCount * 2);
+        }
+
+        openPos[openCount] = pos;
+        prevOpen[openCount] = lastOpen[slot];
+        lastOpen[slot] = openCount++;
+    }
+
+    void close(int slot, int pos) {
+        int open = lastOpen[slot];
+
+        if (open < 0) {
+            return;
+        }
+
+        if (count == slots.length) {
+            slots = Arrays.copyOf(slots, count * 2);
+            startPos = Arrays.copyOf(startPos, count * 2);
+            endPos = Arrays.copyOf(endPos, count * 2);
+        }
+
+        slots[count] = slot;
+        startPos[count] = openPos[open];
+        endPos[count++] = pos;
+        lastOpen[slot] = prevOpen[open];
+    }
+
+    int size() {
+        return count;
+    }
+
+    int getSlot(int i) {
+        return slots[i];
+    }
+
+    int getStartPos(int i) {
+        return startPos[i];
+    }
+
+    int getEndPos(int i) {
+        return endPos[i];
+    }
+}
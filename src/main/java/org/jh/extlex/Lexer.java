@@ -17,11 +17,14 @@
 package org.jh.extlex;
 
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import static java.lang.Math.max;
-import java.util.Stack;
 import java.util.TreeMap;
 import org.jh.extlex.exception.RegExpExpectedCharException;
 import org.jh.extlex.exception.RegExpExpectedException;
@@ -42,12 +45,12 @@ public final class Lexer<T> {
     private int actGroupCount;
     private int maxGroupCount;
     private int groupPos;
+    private int ruleCount = 0;
     private char actChar;
     private GroupMeth[] actGroupMeths;
-    private final List<GroupInfo> groupInfoList = new ArrayList<>();
+    private final List<BracketInfo> bracketInfoList = new ArrayList<>();
     private NDState[] bracketList = new NDState[1];
     private final List<RecursiveState> recStateList = new ArrayList<>();
-    private Stack<DState> stackOfState;
     private final Map<DState, List<String>> debugInfoDState = new TreeMap<>();
 
     /*
@@ -84,11 +87,62 @@ public final class Lexer<T> {
     }
 
     public Lexer<T> addPattern(String regexp, Initializer init, TokenMeth<T> matchToken, GroupMeth ... matchGroups) throws Exception {
+        return addPattern(regexp, init, matchToken, null, null, false, matchGroups);
+    }
+
+    /**
+     * Adds a pattern whose tokens are int values. They are read without boxing
+     * by Scanner.nextInt or intToken. The other token methods skip them.
+     */
+    public Lexer<T> addIntPattern(String regexp, IntTokenMeth matchToken, GroupMeth... matchGroups) throws Exception {
+        return addPattern(regexp, this::nada, null, PrimitiveToken.ofInt(Objects.requireNonNull(matchToken)), null, false, matchGroups);
+    }
+
+    // the tokens are read by Scanner.nextLong or longToken
+    public Lexer<T> addLongPattern(String regexp, LongTokenMeth matchToken, GroupMeth... matchGroups) throws Exception {
+        return addPattern(regexp, this::nada, null, PrimitiveToken.ofLong(Objects.requireNonNull(matchToken)), null, false, matchGroups);
+    }
+
+    // the tokens are read by Scanner.nextDouble or doubleToken
+    public Lexer<T> addDoublePattern(String regexp, DoubleTokenMeth matchToken, GroupMeth... matchGroups) throws Exception {
+        return addPattern(regexp, this::nada, null, PrimitiveToken.ofDouble(Objects.requireNonNull(matchToken)), null, false, matchGroups);
+    }
+
+    /**
+     * Adds a pattern for integer literals. The Scanner accumulates the value
+     * while it reads the digits, so nextLong and nextInt don't read them again.
+     * Digits and '-' are used, other characters (e.g. '+' or '_') are ignored.
+     * nextInt throws a NumberFormatException for a value out of the range of int.
+     */
+    public Lexer<T> addIntegerLiteral(String regexp) throws Exception {
+        return addPattern(regexp, this::nada, null, PrimitiveToken.integerLiteral(), null, false);
+    }
+
+    // like addIntegerLiteral with a '.' before the fraction, read by nextDouble
+    public Lexer<T> addDecimalLiteral(String regexp) throws Exception {
+        return addPattern(regexp, this::nada, null, PrimitiveToken.decimalLiteral(), null, false);
+    }
+
+    /**
+     * Adds a pattern whose tokens are only returned as its rule number by
+     * Scanner.nextTokenType. The rule number of a pattern is the number of
+     * patterns added before it.
+     */
+    public Lexer<T> addTokenType(String regexp) throws Exception {
+        return addPattern(regexp, this::nada, null, null, null, true);
+    }
+
+    // binds the pattern to the enum constant, which is returned by Scanner.nextTokenType(Class)
+    public Lexer<T> addTokenType(Enum<?> type, String regexp) throws Exception {
+        return addPattern(regexp, this::nada, null, null, Objects.requireNonNull(type), true);
+    }
+
+    private Lexer<T> addPattern(String regexp, Initializer init, TokenMeth<T> matchToken, PrimitiveToken primitiveToken, Enum<?> type, boolean pulled, GroupMeth... matchGroups) throws Exception {
         if (matchGroups.length + 1 > bracketList.length) {
             bracketList = new NDState[matchGroups.length + 1];
         }
         
-        NDState node = bracketList[0] = parse(regexp, init, matchToken, matchGroups);
+        NDState node = bracketList[0] = parse(regexp, init, matchToken, primitiveToken, type, pulled, matchGroups);
 
         if (root == null) {
             root = node;
@@ -136,35 +190,83 @@ public final class Lexer<T> {
     }
     
     DRootState createDFA() throws Exception {
-        DFABuilder<T> dfaBuilder = new DFABuilder<>(checkNo, stateNo, groupInfoList, maxGroupCount);
+        DFABuilder<T> dfaBuilder = new DFABuilder<>(checkNo, stateNo, bracketInfoList, maxGroupCount);
         
         return dfaBuilder.createDFA(root);        
     }
     
     public Tokenizer<T> createTokenizer() throws Exception {
-        return new Tokenizer<>(createDFA());
+        return new Tokenizer<>(new DTable<>(createDFA()));
     }
     
     public Matcher<T> match(String input) throws Exception {
         return createTokenizer().match(input);
     }
     
+    public Matcher<T> match(CharSequence input) throws Exception {
+        return createTokenizer().match(input);
+    }
+    
+    public Matcher<T> match(char[] input, int start, int length) throws Exception {
+        return createTokenizer().match(input, start, length);
+    }
+    
+    public ByteMatcher<T> match(ByteBuffer input) throws Exception {
+        return createTokenizer().match(input);
+    }
+    
+    public ByteMatcher<T> match(Path input) throws Exception {
+        return createTokenizer().match(input);
+    }
+    
     public Matcher<T> match(Reader input) throws Exception {
         return createTokenizer().match(input);
     }
     
+    public Matcher<T> match(Reader input, int bufferSize) throws Exception {
+        return createTokenizer().match(input, bufferSize);
+    }
+    
     public Matcher<T> match(TokenReader input) throws Exception {
         return createTokenizer().match(input);
     }
     
+    public PushScanner<T> push(Consumer<? super T> consumer) throws Exception {
+        return createTokenizer().push(consumer);
+    }
+    
     public Scanner<T> scan(String input) throws Exception {
         return createTokenizer().scan(input);
     }
     
+    public Scanner<T> scan(CharSequence input) throws Exception {
+        return createTokenizer().scan(input);
+    }
+    
+    public Scanner<T> scan(char[] input, int start, int length) throws Exception {
+        return createTokenizer().scan(input, start, length);
+    }
+    
+    public ByteScanner<T> scan(ByteBuffer input) throws Exception {
+        return createTokenizer().scan(input);
+    }
+    
+    public ByteScanner<T> scan(byte[] input) throws Exception {
+        return createTokenizer().scan(input);
+    }
+    
+    public ByteScanner<T> scan(Path input) throws Exception {
+        return createTokenizer().scan(input);
+    }
+    
     public Scanner<T> scan(Reader input) throws Exception {
         return createTokenizer().scan(input);
     }
     
+    public Scanner<T> scan(Reader input, int bufferSize) throws Exception {
+        return createTokenizer().scan(input, bufferSize);
+    }
+    
     public Scanner<T> scan(TokenReader input) throws Exception {
         return createTokenizer().scan(input);
     }
@@ -172,6 +274,10 @@ public final class Lexer<T> {
     public int getMaxGroupCount() {
         return maxGroupCount;
     }
+    
+    public int getRuleCount() {
+        return ruleCount;
+    }
 
     void setNextState(List<Transition<NDState>> trans, NDState nstate) {
         for (Transition<NDState> t : trans) {
@@ -197,7 +303,7 @@ public final class Lexer<T> {
         return actregexppos + pos < actregexplen ? actregexp.charAt(actregexppos + pos) : 0;
     }
 
-    private NDState parse(String regexp, Initializer init, TokenMeth<T> matchToken, GroupMeth... groupMeths) throws Exception {
+    private NDState parse(String regexp, Initializer init, TokenMeth<T> matchToken, PrimitiveToken primitiveToken, Enum<?> type, boolean pulled, GroupMeth... groupMeths) throws Exception {
         try {
             actregexp = regexp;
             actregexplen = regexp.length();
@@ -220,7 +326,8 @@ public final class Lexer<T> {
             actGroupCount = bracketNo - bracketStart;
             maxGroupCount = max(maxGroupCount, actGroupCount);
 
-            setNextState(tlist, new FinState<>(actregexp, init, matchToken));
+            setNextState(tlist, new FinState<>(actregexp, ruleCount++, init, matchToken, primitiveToken, type,
+                !pulled && matchToken == null && primitiveToken == null && groupMeths.length == 0));
 
             return node;
         } catch (DoubleEntryException dee) {
@@ -264,6 +371,14 @@ public final class Lexer<T> {
         return e;
     }
 
+    private BracketInfo newBracketInfo(GroupMeth groupMeth) {
+        BracketInfo brinfo = new BracketInfo(actregexp, ruleCount, groupMeth, bracketInfoList.size());
+
+        bracketInfoList.add(brinfo);
+
+        return brinfo;
+    }
+
     NDState parseGroupExpr(List<Transition<NDState>> trans) throws Exception {
         int actBracketNo = bracketNo;
         int actGroupPos = groupPos + 1;
@@ -276,7 +391,7 @@ public final class Lexer<T> {
             bracketNo++;
 
             if (actGroupMeths != null && groupPos < actGroupMeths.length) {
-                brinfo = new BracketInfo(actregexp, actGroupMeths[groupPos++], groupInfoList);
+                brinfo = newBracketInfo(actGroupMeths[groupPos++]);
             } 
         }
 
@@ -457,7 +572,7 @@ public final class Lexer<T> {
         if ((actChar = getChar()) == '(') {
             actChar = getChar();
             if (actGroupMeths != null && groupPos < actGroupMeths.length) {
-                BracketInfo brinfo = new BracketInfo(actregexp, actGroupMeths[groupPos], groupInfoList);
+                BracketInfo brinfo = newBracketInfo(actGroupMeths[groupPos]);
 
                 forward = true;
                 quantState = new OpenBracketState(bracketNo, brinfo);               
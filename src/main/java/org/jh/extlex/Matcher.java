@@ -18,68 +18,120 @@ package org.jh.extlex;
 import java.io.IOException;
 import org.jh.extlex.exception.UnknownTokenException;
 
+/**
+ * Finds the tokens in an input, which may contain other text as well.
+ * The text between the tokens is ignored. At every position the longest
+ * token is returned, which starts first.
+ * The end of the next token is found by the SearchTable in one pass. The
+ * start of the token is then found by TokenStarts in a second pass from the
+ * last position where no token was in progress.
+ * Without SearchTable (recursive patterns) a token is tried at every position.
+ * Before, the characters which can't start a token are skipped by the Prefilter.
+ */
 public class Matcher<T> extends Scanner<T> {
-    Matcher(DRootState root, TokenReader tr) {
-        super(root, tr);
+    private final SearchTable search;
+    private final Prefilter prefilter;
+    private final TokenStarts starts;
+
+    Matcher(DTable<T> table, TokenReader tr) {
+        super(table, tr);
+
+        this.search = table.getSearchTable();
+        this.prefilter = table.prefilter;
+        this.starts = search != null ? new TokenStarts(table.classCount, table.startState, finals(table)) : null;
     }
 
-    @SuppressWarnings("unchecked")
-    public boolean hasNext() throws UnknownTokenException, IOException {
-        if (tr.reachedEndOfReader()) {
-            return false;
-        }
+    private static boolean[] finals(DTable<?> table) {
+        boolean[] finals = new boolean[table.finStates.length];
 
-        DState act = rootState;
-        int ppos = tr.getPos();
+        for (int state = 0; state < finals.length; state++) {
+            finals[state] = table.finStates[state] != null;
+        }
 
-        clear();
+        return finals;
+    }
 
+    @Override
+    public boolean hasNext() throws UnknownTokenException, IOException {
         do {
-            for (int ch = tr.read(); ch != -1; ch = tr.read()) {
-                DTransition<DState> trans = act.getTransition(ch);
+            if (tr.reachedEndOfReader()) {
+                return false;
+            }
 
-                if (trans != null) {
-                    act = trans.st;
+            if (search == null && prefilter != null && !tr.skip(prefilter)) {
+                return false;
+            }
 
-                    trans.saveGroupPos(ppos);
+            clear();
 
-                    if (act instanceof DStateFin) {
-                        finState = (DStateFin<T>) act;
+            if (search != null) {
+                if (!findEndOfToken() || !findStartOfToken()) {
+                    return false;
+                }
+            }
 
-                        tr.mark();
-                    }
+            // the longest token at the token start, also a skipped one
+            while (!scanToken(true, true)) {
+                tr.resetToTokenStart();
+                tr.read();
 
-                    ppos = tr.getPos();
-                } else {
-                    if (finState == null) {
-                        ppos = tr.resetToTokenStart();
+                if (tr.reachedEndOfReader()) {
+                    return false;
+                }
 
-                        tr.read();
-                        tr.accepted();
-                    } else {
-                        ppos = tr.reset();
+                if (search == null && prefilter != null && !tr.skip(prefilter)) {
+                    return false;
+                }
+            }
+        } while (finState.skip);
 
-                        if (stackState.isEmpty()) {
-                            break;
-                        }
+        return true;
+    }
 
-                        finState.saveGroupPos(ppos);
+    // reads until a token ends, the text before the last quiet position is accepted
+    private boolean findEndOfToken() throws IOException, UnknownTokenException {
+        final int[] next = search.next;
+        final boolean[] match = search.match;
+        final int classCount = table.classCount;
+        int act = SearchTable.QUIET;
 
-                        finState = null;
-                        act = stackState.pop();
-                    }
-                }
+        while (act != SearchTable.QUIET || prefilter == null || tr.skip(prefilter)) {
+            int ch = tr.read();
+
+            if (ch == -1) {
+                break;
             }
-            if (handleFinStates(tr.reset())) {
-                return true;
-            } else {
-                ppos = tr.resetToTokenStart();
 
-                tr.read();
+            act = next[act * classCount + table.classOf(ch)];
+
+            if (act == SearchTable.QUIET) {
                 tr.accepted();
+            } else if (match[act]) {
+                return true;
             }
-        } while (!tr.reachedEndOfReader());
+        }
 
         return false;
     }
+
+    // moves the token start to the first token after the last quiet position
+    private boolean findStartOfToken() throws IOException, UnknownTokenException {
+        final int[] next = table.next;
+        int at = 0;
+
+        tr.resetToTokenStart();
+        starts.clear();
+
+        for (int ch = tr.read(); ch != -1 && starts.step(next, table.classOf(ch), at); ch = tr.read()) {
+            at++;
+        }
+
+        tr.resetToTokenStart();
+
+        for (int i = starts.first(); i > 0; i--) {
+            tr.read();
+        }
+
+        return starts.first() != -1;
+    }
 }
@@ -19,10 +19,10 @@ import org.jh.extlex.util.SortedList;
 import java.util.List;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.function.Consumer;
 import org.jh.extlex.util.CharRange;
 import org.jh.extlex.util.CharSet;
 import org.jh.extlex.util.ConsumerException;
+import org.jh.extlex.util.IntList;
 import org.jh.extlex.util.RangeSet;
 import org.jh.extlex.util.SortKey;
 
@@ -264,13 +264,13 @@ class NDState extends State<NDState> implements SortKey {
     }
     
     protected boolean getNextStates(SortedList<NDState> nextStates, SingleNumber stateNo, int checkNo,
-        CharRange range, List<Consumer<Integer>> groupSavers, MutableRecursiveState recursivState) throws Exception {
+        CharRange range, IntList groupActions, MutableRecursiveState recursivState) throws Exception {
         boolean matchChar = false;
         
         // test for loop
         if (!yetChecked(checkNo)) {
             for (Transition<NDState> t : getEmptyTransitions()) {
-                if (t.st.getNextStates(nextStates, stateNo, checkNo, range, groupSavers, recursivState)) {
+                if (t.st.getNextStates(nextStates, stateNo, checkNo, range, groupActions, recursivState)) {
                     if (!t.isForwardTransition() && this instanceof RecursiveState) {
                         recursivState.setState((RecursiveState) this);                
                     }
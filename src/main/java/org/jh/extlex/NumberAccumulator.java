@@ -0,0 +1,169 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * Accumulates the value of a number literal while the scanner reads its
+ * characters (see Lexer.addIntegerLiteral and addDecimalLiteral).
+ * Digits are added to the value, a '-' makes it negative and a '.' starts
+ * the fraction. All other characters (e.g. '+' or '_') are ignored, only an
+ * exponent ('e' or 'E') makes the value inexact.
+ * The value is exact for up to 18 digits of an integer and up to 15 digits
+ * of a decimal. Otherwise the token text is parsed again.
+ * The state at the last mark is restored when the scanner resets to it.
+ * Only the characters read in the states of a number literal are added
+ * (see DTable.numberStates).
+ */
+final class NumberAccumulator {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private long value;
+    private int digits;
+    private int scale;
+    private boolean negative;
+    private boolean point;
+    private boolean exponent;
+    private long markValue;
+    private int markDigits;
+    private int markScale;
+    private boolean markNegative;
+    private boolean markPoint;
+    private boolean markExponent;
+
+    final void add(int ch) {
+        int digit = ch - '0';
+
+        if (digit >= 0 && digit <= 9) {
+            value = value * 10 + digit;
+            digits++;
+
+            if (point) scale++;
+        } else if (ch == '-') {
+            negative = true;
+        } else if (ch == '.') {
+            point = true;
+        } else if (ch == 'e' || ch == 'E') {
+            exponent = true;
+        }
+    }
+
+    // adds the characters of a run read from the buffer
+    final void add(char[] buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            add(buffer[i]);
+        }
+    }
+
+    final void mark() {
+        markValue = value;
+        markDigits = digits;
+        markScale = scale;
+        markNegative = negative;
+        markPoint = point;
+        markExponent = exponent;
+    }
+
+    final void reset() {
+        value = markValue;
+        digits = markDigits;
+        scale = markScale;
+        negative = markNegative;
+        point = markPoint;
+        exponent = markExponent;
+    }
+
+    final void clear() {
+        value = digits = scale = 0;
+        negative = point = exponent = false;
+        mark();
+    }
+
+    final boolean isExactLong() {
+        return digits <= 18 && !exponent;
+    }
+
+    final boolean isExactDouble() {
+        return digits <= 15 && !exponent && scale < POWERS_OF_TEN.length;
+    }
+
+    final long longValue() {
+        return negative ? -value : value;
+    }
+
+    final double doubleValue() {
+        double v = value / POWERS_OF_TEN[scale];
+
+        return negative ? -v : v;
+    }
+
+    // the value of an integer literal, which must be in the range of int
+    static int parseInt(char[] buffer, int start, int len) {
+        return toInt(parseLong(buffer, start, len));
+    }
+
+    static int toInt(long value) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("The value " + value + " is out of the range of int!");
+        }
+
+        return (int) value;
+    }
+
+    static long parseLong(char[] buffer, int start, int len) {
+        NumberAccumulator acc = accumulate(buffer, start, len);
+
+        if (acc.isExactLong()) {
+            return acc.longValue();
+        }
+
+        StringBuilder sb = new StringBuilder(len);
+
+        for (int i = start, end = start + len; i < end; i++) {
+            if (buffer[i] >= '0' && buffer[i] <= '9') sb.append(buffer[i]);
+        }
+
+        return Long.parseLong(acc.negative ? "-" + sb : sb.toString());
+    }
+
+    static double parseDouble(char[] buffer, int start, int len) {
+        NumberAccumulator acc = accumulate(buffer, start, len);
+
+        if (acc.isExactDouble()) {
+            return acc.doubleValue();
+        }
+
+        StringBuilder sb = new StringBuilder(len);
+
+        for (int i = start, end = start + len; i < end; i++) {
+            char ch = buffer[i];
+
+            if (ch >= '0' && ch <= '9' || ch == '-' || ch == '.' || ch == 'e' || ch == 'E') sb.append(ch);
+        }
+
+        return Double.parseDouble(sb.toString());
+    }
+
+    private static NumberAccumulator accumulate(char[] buffer, int start, int len) {
+        NumberAccumulator acc = new NumberAccumulator();
+
+        acc.add(buffer, start, start + len);
+
+        return acc;
+    }
+}
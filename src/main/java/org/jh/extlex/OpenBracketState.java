@@ -16,9 +16,8 @@
 package org.jh.extlex;
 
 import org.jh.extlex.util.SortedList;
-import java.util.List;
-import java.util.function.Consumer;
 import org.jh.extlex.util.CharRange;
+import org.jh.extlex.util.IntList;
 
 public class OpenBracketState extends NDState {
     int bracketNo;
@@ -42,9 +41,9 @@ public class OpenBracketState extends NDState {
 
     @Override
     final protected boolean getNextStates(SortedList<NDState> nextStates, SingleNumber stateNo, int checkNo, 
-        CharRange range, List<Consumer<Integer>> groupSavers, MutableRecursiveState recursivState) throws Exception {
-        if (super.getNextStates(nextStates, stateNo, checkNo, range, groupSavers, recursivState)) {
-            groupSavers.add(this instanceof CloseBracketState ? bracketInfo::saveEndPos : bracketInfo::saveStartPos);
+        CharRange range, IntList groupActions, MutableRecursiveState recursivState) throws Exception {
+        if (super.getNextStates(nextStates, stateNo, checkNo, range, groupActions, recursivState)) {
+            groupActions.add(this instanceof CloseBracketState ? Action.close(bracketInfo.slot) : Action.open(bracketInfo.slot));
             
             return true;
         }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.Arrays;
+
+/**
+ * Finds the next position in the buffer where a token may start. If all
+ * tokens start with the same literal of at least two characters, it is
+ * searched by Boyer-Moore-Horspool. Otherwise the characters are skipped
+ * until a character, which is the first character of a token.
+ */
+final class Prefilter {
+    private static final int MAX_LITERAL_LENGTH = 64;
+
+    private final long[] firstChars = new long[(Character.MAX_VALUE + 1) / 64];
+    private final char[] literal;
+    private final int[] shift;
+
+    private Prefilter(char[] literal) {
+        this.literal = literal;
+
+        if (literal.length > 1) {
+            int last = literal.length - 1;
+
+            shift = new int[256];
+
+            Arrays.fill(shift, literal.length);
+
+            for (int i = 0; i < last; i++) {
+                shift[literal[i] & 0xff] = last - i;
+            }
+        } else {
+            shift = null;
+        }
+    }
+
+    /*
+     * Creates the prefilter for the tables. Returns null if every character
+     * may start a token.
+     */
+    static Prefilter create(DTable<?> table) {
+        int noOfChars = Character.MAX_VALUE + 1;
+        int[] charsOfClass = new int[table.classCount];
+        char[] charOfClass = new char[table.classCount];
+        int startRow = table.startState * table.classCount;
+        boolean filters = false;
+
+        for (int ch = 0; ch < noOfChars; ch++) {
+            int cls = table.classOf(ch);
+
+            charsOfClass[cls]++;
+            charOfClass[cls] = (char) ch;
+            filters |= table.next[startRow + cls] == DTable.NO_STATE;
+        }
+
+        if (!filters) {
+            return null;
+        }
+
+        StringBuilder literal = new StringBuilder();
+
+        for (int state = table.startState; literal.length() < MAX_LITERAL_LENGTH;) {
+            int row = state * table.classCount;
+            int nextCls = -1;
+
+            for (int cls = 0; cls < table.classCount; cls++) {
+                if (table.next[row + cls] != DTable.NO_STATE) {
+                    nextCls = nextCls == -1 ? cls : -2;
+                }
+            }
+
+            if (nextCls < 0 || charsOfClass[nextCls] != 1) {
+                break;
+            }
+
+            literal.append(charOfClass[nextCls]);
+            state = table.next[row + nextCls];
+
+            if (table.accept[state] >= 0) {
+                break;
+            }
+        }
+
+        Prefilter prefilter = new Prefilter(literal.toString().toCharArray());
+
+        for (int ch = 0; ch < noOfChars; ch++) {
+            if (table.next[startRow + table.classOf(ch)] != DTable.NO_STATE) {
+                prefilter.firstChars[ch >>> 6] |= 1L << ch;
+            }
+        }
+
+        return prefilter;
+    }
+
+    /**
+     * Returns the first position from start to end where a token may start
+     * or end if there is no such position.
+     */
+    final int find(char[] buffer, int start, int end) {
+        if (shift != null) {
+            return findLiteral(buffer, start, end);
+        }
+
+        for (int pos = start; pos < end; pos++) {
+            char ch = buffer[pos];
+
+            if ((firstChars[ch >>> 6] & 1L << ch) != 0) {
+                return pos;
+            }
+        }
+
+        return end;
+    }
+
+    private int findLiteral(char[] buffer, int start, int end) {
+        int last = literal.length - 1;
+        char lastChar = literal[last];
+
+        for (int pos = start + last; pos < end; pos += shift[buffer[pos] & 0xff]) {
+            if (buffer[pos] == lastChar) {
+                int i = 0;
+
+                while (i < last && buffer[pos - last + i] == literal[i]) {
+                    i++;
+                }
+
+                if (i == last) {
+                    return pos - last;
+                }
+            }
+        }
+
+        // the literal may start at the end of the buffer and continue after the next read
+        return Math.max(start, end - last);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * The token methods of a pattern whose tokens are int, long or double values.
+ * An int method is also read as long and double, a long method as double.
+ * The token methods of number literals are only called if the value
+ * accumulated by the Scanner isn't exact (see NumberAccumulator).
+ */
+final class PrimitiveToken {
+    static final int NO_LITERAL = 0;
+    static final int INTEGER_LITERAL = 1;
+    static final int DECIMAL_LITERAL = 2;
+
+    final IntTokenMeth intMeth;
+    final LongTokenMeth longMeth;
+    final DoubleTokenMeth doubleMeth;
+    final int literal;
+
+    private PrimitiveToken(IntTokenMeth intMeth, LongTokenMeth longMeth, DoubleTokenMeth doubleMeth, int literal) {
+        this.intMeth = intMeth;
+        this.longMeth = longMeth;
+        this.doubleMeth = doubleMeth;
+        this.literal = literal;
+    }
+
+    static PrimitiveToken ofInt(IntTokenMeth meth) {
+        return new PrimitiveToken(meth, meth::applyAsInt, meth::applyAsInt, NO_LITERAL);
+    }
+
+    static PrimitiveToken ofLong(LongTokenMeth meth) {
+        return new PrimitiveToken(null, meth, meth::applyAsLong, NO_LITERAL);
+    }
+
+    static PrimitiveToken ofDouble(DoubleTokenMeth meth) {
+        return new PrimitiveToken(null, null, meth, NO_LITERAL);
+    }
+
+    static PrimitiveToken integerLiteral() {
+        return new PrimitiveToken(NumberAccumulator::parseInt, NumberAccumulator::parseLong, NumberAccumulator::parseLong,
+            INTEGER_LITERAL);
+    }
+
+    static PrimitiveToken decimalLiteral() {
+        return new PrimitiveToken(null, null, NumberAccumulator::parseDouble, DECIMAL_LITERAL);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A scanner to which the input is pushed in chunks of any size. Every token
+ * is passed to the consumer as soon as it is complete, i.e. when the next
+ * character doesn't continue it. The last token is completed by endOfInput.
+ * The state of the DFA, the text of the token in progress and the positions
+ * of its groups are kept between the chunks, so a chunk is never read twice
+ * except for the characters read ahead for a longer token.
+ * Bytes are decoded as UTF-8, a character may be split between two chunks.
+ * Only tokens of patterns with a token method are passed to the consumer,
+ * so Tokenizer.push rejects patterns whose tokens can only be pulled
+ * (int, long and double patterns, number literals and token types). The
+ * pull API (hasNext, getNextToken, fillBatch, ...) throws an
+ * IllegalStateException.
+ */
+public class PushScanner<T> extends AbstractScanner<T> {
+    private final Consumer<? super T> consumer;
+    private CharsetDecoder decoder = null;
+    private ByteBuffer pendingBytes = null;
+    private CharBuffer decoded = null;
+    private boolean ended = false;
+
+    PushScanner(DTable<T> table, Consumer<? super T> consumer) {
+        super(table, new TokenReader(Tokenizer.DEFAULT_BUFFER_SIZE));
+
+        this.consumer = consumer;
+    }
+
+    final public void feed(char[] chunk) throws Exception {
+        feed(chunk, 0, chunk.length);
+    }
+
+    final public void feed(char[] chunk, int start, int length) throws Exception {
+        if (ended) {
+            throw new IllegalStateException("The input has been ended!");
+        }
+
+        tr.append(chunk, start, length);
+
+        run();
+    }
+
+    // feeds the bytes from the position to the limit of the chunk as UTF-8
+    final public void feed(ByteBuffer chunk) throws Exception {
+        if (ended) {
+            throw new IllegalStateException("The input has been ended!");
+        }
+
+        if (decoder == null) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+            decoded = CharBuffer.allocate(1024);
+        }
+
+        ByteBuffer input = chunk;
+
+        if (pendingBytes != null) { // the start of a character of the last chunk
+            input = ByteBuffer.allocate(pendingBytes.remaining() + chunk.remaining());
+            input.put(pendingBytes).put(chunk).flip();
+            pendingBytes = null;
+        }
+
+        decode(input, false);
+
+        if (input.hasRemaining()) {
+            pendingBytes = ByteBuffer.allocate(input.remaining());
+            pendingBytes.put(input).flip();
+        }
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) throws Exception {
+        while (true) {
+            CoderResult result = decoder.decode(input, decoded, endOfInput);
+
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            decoded.flip();
+            feed(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+            decoded.clear();
+
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Completes the last token. Afterwards no more input can be fed.
+     */
+    final public void endOfInput() throws Exception {
+        if (decoder != null) {
+            decode(pendingBytes != null ? pendingBytes : ByteBuffer.allocate(0), true);
+
+            pendingBytes = null;
+        }
+
+        ended = true;
+
+        run();
+    }
+
+    /**
+     * Returns a checkpoint after the last completed token with the characters
+     * and bytes fed after it. Tokenizer.push(consumer, checkpoint) continues
+     * with them, the next feed gets the input after the last chunk.
+     */
+    @Override
+    public Checkpoint checkpoint() {
+        byte[] bytes = new byte[pendingBytes != null ? pendingBytes.remaining() : 0];
+
+        if (pendingBytes != null) {
+            pendingBytes.duplicate().get(bytes);
+        }
+
+        return tr.checkpoint(isInToken(), bytes);
+    }
+
+    // feeds the pending characters and bytes of the checkpoint
+    final void resume(Checkpoint checkpoint) throws Exception {
+        tr.resume(checkpoint);
+
+        if (checkpoint.getPendingChars().length > 0) {
+            feed(checkpoint.getPendingChars());
+        }
+
+        if (checkpoint.getPendingBytes().length > 0) {
+            feed(ByteBuffer.wrap(checkpoint.getPendingBytes()));
+        }
+    }
+
+    // the tokens are passed to the consumer, so the pull API of the BaseScanner can't be used
+    @Override
+    protected boolean hasNext() {
+        throw new IllegalStateException("The tokens of a PushScanner are passed to its consumer!");
+    }
+
+    // passes the tokens completed by the characters fed so far to the consumer
+    private void run() throws Exception {
+        while (scanToken(ended, false)) {
+            if (finState.matchToken != null) {
+                consumer.accept(getToken());
+            } else {
+                applyGroups();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A reader which reads its input in a background thread ahead of the scanner.
+ * The thread fills chunks of chars while the scanner consumes the previous
+ * ones. The chunks are recycled, so at most chunkCount chunks are read ahead
+ * and the thread waits until the scanner has consumed one of them.
+ * read returns the chars of the chunks filled so far, up to len chars. It
+ * blocks only if no chunk is filled, so the scanner never waits for input
+ * while chars are available.
+ * The thread is created by the ThreadFactory, e.g. a factory of virtual
+ * threads on newer JDKs. By default it is a daemon thread.
+ * An exception of the input is thrown by read as cause of an IOException.
+ * close stops the thread and closes the input.
+ */
+public class ReadAheadReader extends Reader {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    private final Reader in;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread thread;
+    private Chunk current = null;
+    private int pos = 0;
+    private volatile boolean closed = false;
+
+    public ReadAheadReader(Reader in) {
+        this(in, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    public ReadAheadReader(Reader in, int chunkSize, int chunkCount) {
+        this(in, chunkSize, chunkCount, r -> {
+            Thread thread = new Thread(r, "extLex-read-ahead");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    public ReadAheadReader(Reader in, int chunkSize, int chunkCount, ThreadFactory threadFactory) {
+        if (chunkSize < 1 || chunkCount < 1) {
+            throw new IllegalArgumentException("chunkSize and chunkCount must be positive!");
+        }
+
+        this.in = in;
+        this.free = new ArrayBlockingQueue<>(chunkCount);
+        this.filled = new ArrayBlockingQueue<>(chunkCount + 1);
+
+        for (int i = 0; i < chunkCount; i++) {
+            free.add(new Chunk(chunkSize));
+        }
+
+        this.thread = threadFactory.newThread(this::readAhead);
+        this.thread.start();
+    }
+
+    private void readAhead() {
+        try {
+            while (!closed) {
+                Chunk chunk = free.take();
+
+                try {
+                    chunk.length = in.read(chunk.chars, 0, chunk.chars.length);
+                } catch (IOException | RuntimeException e) {
+                    chunk.length = -1;
+                    chunk.error = e;
+                }
+
+                filled.put(chunk);
+
+                if (chunk.length < 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Reader is closed!");
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        int count = 0;
+
+        while (count < len) {
+            if (current == null || pos == current.length) {
+                if (current != null && current.length >= 0) {
+                    free.add(current);
+                }
+
+                // waits only as long as no chars are read
+                current = count == 0 ? takeChunk() : filled.poll();
+
+                if (current == null) {
+                    break;
+                }
+
+                pos = 0;
+            }
+
+            if (current.length < 0) { // end of input, the next read gets the same chunk
+                Chunk end = current;
+
+                filled.add(end);
+                current = null;
+
+                if (count > 0) {
+                    return count;
+                }
+
+                if (end.error != null) {
+                    throw new IOException("Read ahead failed", end.error);
+                }
+
+                return -1;
+            }
+
+            int n = Math.min(len - count, current.length - pos);
+
+            System.arraycopy(current.chars, pos, cbuf, off + count, n);
+
+            pos += n;
+            count += n;
+        }
+
+        return count;
+    }
+
+    private Chunk takeChunk() throws IOException {
+        try {
+            return filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the input");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        in.close();
+    }
+
+    private static final class Chunk {
+        final char[] chars;
+        int length = 0;
+        Exception error = null;
+
+        Chunk(int size) {
+            this.chars = new char[size];
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jh.extlex.util.IntList;
+
+/**
+ * A DFA for finding the end of the next match in one pass. It is the DFA of
+ * the tables with an implicit .* in front of it. A state of the search DFA is
+ * the set of the states of all matches started before, which are still
+ * alive. With every character a new match is started at the start state.
+ * The state QUIET is the empty set. In this state no match is alive, so the
+ * next match can't start before the current position. The state of a table
+ * contains a final state if a match ends at the current position.
+ * The Matcher uses the last quiet position as start for the DFA of the tables
+ * to find the start, the longest match and the groups. The ByteMatcher does
+ * the same with a search DFA over the bytes of the ByteTable.
+ */
+final class SearchTable {
+    static final int QUIET = 0;
+    private static final int MAX_CELLS = 1 << 22;
+
+    final int[] next;
+    final boolean[] match;
+
+    private SearchTable(int[] next, boolean[] match) {
+        this.next = next;
+        this.match = match;
+    }
+
+    /*
+     * Creates the search DFA by the subset construction. Returns null if the
+     * tables contain recursive states, because then the next state depends
+     * on the stack, or if the search DFA gets too large.
+     */
+    static SearchTable create(DTable<?> table) {
+        if (table.recursive) {
+            return null;
+        }
+
+        boolean[] finals = new boolean[table.stateCount];
+
+        for (int state = 0; state < table.stateCount; state++) {
+            finals[state] = table.accept[state] >= 0;
+        }
+
+        return create(table.next, table.classCount, table.startState, finals);
+    }
+
+    /*
+     * Creates the search DFA over the bytes of the ByteTable. A match is
+     * started at every byte, but from the start state only the first byte
+     * of a character has a transition.
+     */
+    static SearchTable create(ByteTable bytes, DTable<?> table) {
+        boolean[] finals = new boolean[bytes.next.length >> 8];
+
+        for (int state = 0; state < bytes.stateCount; state++) {
+            finals[state] = table.accept[state] >= 0;
+        }
+
+        return create(bytes.next, 256, bytes.startState, finals);
+    }
+
+    private static SearchTable create(int[] tableNext, int classCount, int startState, boolean[] finals) {
+        Map<DTable.Column, Integer> ids = new HashMap<>();
+        List<int[]> sets = new ArrayList<>();
+        IntList nextList = new IntList();
+        IntList nextSet = new IntList();
+        int[] added = new int[finals.length];
+        int stamp = 0;
+
+        ids.put(new DTable.Column(new int[0]), QUIET);
+        sets.add(new int[0]);
+
+        for (int id = 0; id < sets.size(); id++) {
+            int[] set = sets.get(id);
+
+            for (int cls = 0; cls < classCount; cls++) {
+                nextSet.clear();
+                stamp++;
+
+                for (int i = -1; i < set.length; i++) {
+                    int state = i < 0 ? startState : set[i];
+                    int target = tableNext[state * classCount + cls];
+
+                    if (target != DTable.NO_STATE && added[target] != stamp) {
+                        added[target] = stamp;
+                        nextSet.add(target);
+                    }
+                }
+
+                int[] targets = nextSet.toArray();
+
+                Arrays.sort(targets);
+
+                DTable.Column key = new DTable.Column(targets);
+                Integer target = ids.get(key);
+
+                if (target == null) {
+                    if ((sets.size() + 1) * classCount > MAX_CELLS) {
+                        return null;
+                    }
+
+                    ids.put(key, target = sets.size());
+                    sets.add(targets);
+                }
+
+                nextList.add(target);
+            }
+        }
+
+        boolean[] match = new boolean[sets.size()];
+
+        for (int id = 0; id < sets.size(); id++) {
+            for (int state : sets.get(id)) {
+                match[id] |= finals[state];
+            }
+        }
+
+        return new SearchTable(nextList.toArray(), match);
+    }
+}
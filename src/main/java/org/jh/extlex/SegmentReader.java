@@ -0,0 +1,201 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reader over a sequence of segments, which are read as one input.
+ * The segments are not concatenated. The TokenReader copies only the part of
+ * the input it currently scans into its buffer, so a token may straddle
+ * segments. Byte segments are decoded as UTF-8, a character may be split
+ * between two segments.
+ * The positions of the given buffers are not changed.
+ */
+public class SegmentReader extends Reader {
+    private final CharBuffer[] charSegments;
+    private final ByteBuffer[] byteSegments;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer carry; // the bytes of a character split between segments
+    private int index = 0;
+    private int pendingChar = -1;
+
+    public SegmentReader(char[][] segments) {
+        this(wrap(segments));
+    }
+
+    public SegmentReader(CharBuffer[] segments) {
+        this.charSegments = new CharBuffer[segments.length];
+        this.byteSegments = null;
+        this.decoder = null;
+        this.carry = null;
+
+        for (int i = 0; i < segments.length; i++) {
+            charSegments[i] = segments[i].duplicate();
+        }
+    }
+
+    public SegmentReader(ByteBuffer[] segments) {
+        this.charSegments = null;
+        this.byteSegments = new ByteBuffer[segments.length];
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.carry = ByteBuffer.allocate(4);
+
+        for (int i = 0; i < segments.length; i++) {
+            byteSegments[i] = segments[i].duplicate();
+        }
+    }
+
+    private static CharBuffer[] wrap(char[][] segments) {
+        CharBuffer[] buffers = new CharBuffer[segments.length];
+
+        for (int i = 0; i < segments.length; i++) {
+            buffers[i] = CharBuffer.wrap(segments[i]);
+        }
+
+        return buffers;
+    }
+
+    // the length of the largest segment in chars or bytes
+    final int getMaxSegmentLength() {
+        int max = 0;
+
+        for (int i = 0; i < (charSegments != null ? charSegments.length : byteSegments.length); i++) {
+            max = Math.max(max, charSegments != null ? charSegments[i].remaining() : byteSegments[i].remaining());
+        }
+
+        return max;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int count = charSegments != null ? readChars(cbuf, off, len) : readBytes(CharBuffer.wrap(cbuf, off, len));
+
+        return count == 0 && len > 0 ? -1 : count;
+    }
+
+    private int readChars(char[] cbuf, int off, int len) {
+        int count = 0;
+
+        while (count < len && index < charSegments.length) {
+            CharBuffer segment = charSegments[index];
+            int n = Math.min(len - count, segment.remaining());
+
+            segment.get(cbuf, off + count, n);
+            count += n;
+
+            if (!segment.hasRemaining()) {
+                index++;
+            }
+        }
+
+        return count;
+    }
+
+    private int readBytes(CharBuffer out) throws IOException {
+        int start = out.position();
+
+        if (pendingChar >= 0 && out.hasRemaining()) {
+            out.put((char) pendingChar);
+            pendingChar = -1;
+        }
+
+        if (out.remaining() == 1) { // a surrogate pair needs two chars, the second one is kept
+            CharBuffer pair = CharBuffer.allocate(2);
+
+            decode(pair);
+            pair.flip();
+
+            if (pair.hasRemaining()) {
+                out.put(pair.get());
+            }
+
+            if (pair.hasRemaining()) {
+                pendingChar = pair.get();
+            }
+        } else {
+            decode(out);
+        }
+
+        return out.position() - start;
+    }
+
+    private void decode(CharBuffer out) throws IOException {
+        while (out.hasRemaining()) {
+            if (carry.position() > 0) { // complete the split character with the next segment
+                carry.flip();
+
+                CoderResult result = check(decoder.decode(carry, out, false));
+
+                carry.compact();
+
+                if (result.isOverflow()) {
+                    break;
+                }
+
+                if (carry.position() > 0) {
+                    if (index == byteSegments.length) {
+                        throw new MalformedInputException(carry.position());
+                    }
+
+                    if (byteSegments[index].hasRemaining()) {
+                        carry.put(byteSegments[index].get());
+                    } else {
+                        index++;
+                    }
+                }
+
+                continue;
+            }
+
+            if (index == byteSegments.length) {
+                break;
+            }
+
+            ByteBuffer segment = byteSegments[index];
+
+            if (check(decoder.decode(segment, out, false)).isOverflow()) {
+                break;
+            }
+
+            carry.put(segment);
+            index++;
+        }
+    }
+
+    private static CoderResult check(CoderResult result) throws IOException {
+        if (result.isError()) {
+            result.throwException();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void close() {
+        index = charSegments != null ? charSegments.length : byteSegments.length;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.Arrays;
+
+/**
+ * Returns the same String for equal token texts, e.g. for identifiers or
+ * keywords which occur many times in the input. The text is hashed directly
+ * in the buffer of the scanner and a String is only created on a miss.
+ * The table has a fixed size. Every text is stored in one of PROBES slots
+ * after its hash. If they are all in use, a slot which was not hit since its
+ * last chance is replaced (second chance eviction).
+ * An interner isn't thread-safe. Use one per scanner or thread.
+ */
+public final class StringInterner {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+    private static final int PROBES = 8;
+
+    private final String[] strings;
+    private final int[] hashes;
+    private final boolean[] hit;
+    private final int mask;
+    private final int maxLength;
+
+    public StringInterner() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of 2
+     * @param maxLength longer texts are not interned
+     */
+    public StringInterner(int capacity, int maxLength) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The capacity must be between 1 and 2^30!");
+        }
+
+        int size = Math.max(PROBES, Integer.highestOneBit(capacity - 1) << 1);
+
+        this.strings = new String[size];
+        this.hashes = new int[size];
+        this.hit = new boolean[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    public String intern(char[] buffer, int start, int length) {
+        if (length > maxLength) {
+            return new String(buffer, start, length);
+        }
+
+        int hash = 0;
+
+        for (int i = start, end = start + length; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int first = spread(hash) & mask;
+        int slot = first;
+
+        for (int i = 0; i < PROBES; i++, slot = (slot + 1) & mask) {
+            String s = strings[slot];
+
+            if (s == null) {
+                return store(slot, hash, new String(buffer, start, length));
+            }
+
+            if (hashes[slot] == hash && equals(s, buffer, start, length)) {
+                hit[slot] = true;
+
+                return s;
+            }
+        }
+
+        return store(victim(first), hash, new String(buffer, start, length));
+    }
+
+    public String intern(TokenView view) {
+        return intern(view.getBuffer(), view.getStart(), view.length());
+    }
+
+    public String intern(String s) {
+        return intern(s.toCharArray(), 0, s.length());
+    }
+
+    public void clear() {
+        Arrays.fill(strings, null);
+        Arrays.fill(hit, false);
+    }
+
+    // the first slot without a hit, the hits of the slots before are cleared
+    private int victim(int first) {
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0, slot = first; i < PROBES; i++, slot = (slot + 1) & mask) {
+                if (!hit[slot]) {
+                    return slot;
+                }
+
+                hit[slot] = false;
+            }
+        }
+
+        return first;
+    }
+
+    private String store(int slot, int hash, String s) {
+        strings[slot] = s;
+        hashes[slot] = hash;
+        hit[slot] = false;
+
+        return s;
+    }
+
+    private static boolean equals(String s, char[] buffer, int start, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
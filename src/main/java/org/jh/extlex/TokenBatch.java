@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * A reusable batch of tokens stored as arrays. For every token the number of
+ * its pattern (the order of addPattern starting with 0), the offset of its first
+ * character in the input and its length are stored. Optionally the line and
+ * the column of the token start are stored as well. The offsets are longs, so
+ * mapped files larger than 2 GB can be batched.
+ * The batch is filled by Scanner.fillBatch or ByteScanner.fillBatch. Only the
+ * first size() entries of the arrays are valid.
+ */
+public final class TokenBatch {
+    private final int[] ruleIds;
+    private final long[] starts;
+    private final int[] lengths;
+    private final int[] lines;
+    private final int[] columns;
+    private int size = 0;
+
+    public TokenBatch(int capacity) {
+        this(capacity, false);
+    }
+
+    public TokenBatch(int capacity, boolean withPositions) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive!");
+        }
+
+        ruleIds = new int[capacity];
+        starts = new long[capacity];
+        lengths = new int[capacity];
+        lines = withPositions ? new int[capacity] : null;
+        columns = withPositions ? new int[capacity] : null;
+    }
+
+    final void clear() {
+        size = 0;
+    }
+
+    final boolean isFull() {
+        return size == ruleIds.length;
+    }
+
+    final void add(int ruleId, long start, int length) {
+        ruleIds[size] = ruleId;
+        starts[size] = start;
+        lengths[size++] = length;
+    }
+
+    final void add(int ruleId, long start, int length, int line, int column) {
+        lines[size] = line;
+        columns[size] = column;
+
+        add(ruleId, start, length);
+    }
+
+    public int size() { return size; }
+    public int capacity() { return ruleIds.length; }
+    public boolean hasPositions() { return lines != null; }
+    public int[] getRuleIds() { return ruleIds; }
+    public long[] getStarts() { return starts; }
+    public int[] getLengths() { return lengths; }
+    public int[] getLines() { return lines; }
+    public int[] getColumns() { return columns; }
+}
@@ -15,6 +15,11 @@
  */
 package org.jh.extlex;
 
+/**
+ * Creates the token from its characters. The buffer belongs to the scanner,
+ * its characters are only valid until the next call of hasNext.
+ * See Scanner.tokenView for a view without copying them.
+ */
 public interface TokenMeth<T> {
     public T apply(char[] buffer, int start, int len) throws Exception;
 }
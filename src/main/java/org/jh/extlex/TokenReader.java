@@ -17,6 +17,8 @@ package org.jh.extlex;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 import org.jh.extlex.exception.UnknownTokenException;
 /**
  * a reader for scanning tokens from an input stream. 
@@ -25,134 +27,536 @@ import org.jh.extlex.exception.UnknownTokenException;
  * After one token has been read the accepted command must be called for 
  * aligning all internal informations.
  * The reader provides information of the current position (line, position) inside the stream.
+ * The lines and columns are counted on request up to the requested position
+ * and not while reading. Only the line ends are counted: the column follows
+ * from the offset of the last line start. Before a shift the line ends of
+ * the characters shifted out of the buffer are counted, unless the positions
+ * are switched off. So the positions can be requested at any time, e.g. for
+ * an error message.
  * The strategy of the reader is to read as many tokens into the buffer as possible.
  * The buffer will be resized if there exists no accepted buffer and more space is needed.
  * When accepted buffer exists the non accepted range will be moved to the start of the buffer.
- * Therefore the variable delta contains the information of shifted buffer.
+ * Therefore the variable delta contains the number of characters shifted out of the buffer.
+ * The offsets of the token start and end are longs and stay correct across the
+ * shifts in inputs longer than 2^31 characters. The int positions of getPos,
+ * used by the scanner for groups and the FailureMemo, wrap around there;
+ * only their differences are used.
+ * The buffer grows by doubling its size. A token longer than the maximum
+ * token length is either an UnknownTokenException or it is truncated at the
+ * maximum length (the scanner sees the end of the input for this token).
+ * The length is checked on every read against readLimit, the end of the
+ * characters which can be read for the current token. Without truncating,
+ * one character after a token of maximum length is read ahead. A token
+ * accepted within the maximum length is returned, even if a longer token
+ * was in progress at the limit.
+ * When a grown buffer is shifted and the rest fits into half of the initial
+ * size, the buffer is replaced by one of the initial size again. So an outlier
+ * token doesn't keep a huge buffer alive.
+ * A reader for a char array or a CharSequence scans the array in place. It
+ * has no Reader and never changes its buffer.
+ * The buffer is only shifted or replaced while the next token is read. So
+ * the characters of a token stay where they are until the next hasNext.
+ * Characters before the token are kept if they are pinned.
  */
 public class TokenReader {
     private Reader in = null;
     private int bufSize;
     private final int origBufSize;
+    private int maxTokenLength = Integer.MAX_VALUE;
+    private boolean truncate = false;
     private int bufPos = 0;
-    private int delta = 0;
+    private long delta = 0;
     private int offset = 0;
     private int bufLen = 0;
+    private int readLimit = 0;
     private char[] buffer = null;
-    private int xpos = 1;
-    private int ypos = 1;
-    private int xstart = 1;
-    private int ystart = 1;
-
+    private boolean eof = false;
+    private long pinned = -1;
+    private final boolean push;
     private int match_pos = 0;
-    private int match_xpos = 1;
-    private int match_ypos = 1;
+
+    private boolean trackPositions = true;
+    private long lineOffset = 0;
+    private long line = 1;
+    // the offset after the last '\n' or '\r' before lineOffset
+    private long lineStart = 0;
+    private long startOffset = 0;
+    private long startLine = 1;
+    private long startLineStart = 0;
     
     public TokenReader(Reader in, int bufSize) {
+        if (bufSize < 1) {
+            throw new IllegalArgumentException("bufSize must be positive!");
+        }
+
         this.in = in;
         this.bufSize = bufSize;
         this.origBufSize = bufSize;
         this.buffer = new char[bufSize];
+        this.push = false;
+    }
+
+    // a reader without input, the characters are appended by a PushScanner
+    TokenReader(int bufSize) {
+        this.bufSize = bufSize;
+        this.origBufSize = bufSize;
+        this.buffer = new char[bufSize];
+        this.push = true;
     }
     
     public TokenReader(Reader in) {
         this(in, 128);
     }
 
+    // the token methods get the array itself, the positions are relative to start
+    public TokenReader(char[] input, int start, int length) {
+        if (start < 0 || length < 0 || start + length > input.length) {
+            throw new IndexOutOfBoundsException("start " + start + ", length " + length + ", array length " + input.length);
+        }
+
+        this.buffer = input;
+        this.bufPos = this.offset = this.match_pos = start;
+        this.bufLen = this.bufSize = start + length;
+        this.origBufSize = length;
+        this.delta = -start;
+        this.push = false;
+
+        updateReadLimit();
+    }
+
+    public TokenReader(char[] input) {
+        this(input, 0, input.length);
+    }
+
+    // a CharBuffer with an array is scanned in place, otherwise the characters are copied once
+    public TokenReader(CharSequence input) {
+        this(input instanceof CharBuffer && ((CharBuffer) input).hasArray()
+            ? ((CharBuffer) input).array() : toCharArray(input),
+            input instanceof CharBuffer && ((CharBuffer) input).hasArray()
+            ? ((CharBuffer) input).arrayOffset() + ((CharBuffer) input).position() : 0,
+            input.length());
+    }
+
+    private static char[] toCharArray(CharSequence input) {
+        if (input instanceof String) {
+            return ((String) input).toCharArray();
+        }
+
+        char[] chars = new char[input.length()];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = input.charAt(i);
+        }
+
+        return chars;
+    }
+
+    /**
+     * Sets the maximum length of a token in chars. A longer token throws an
+     * UnknownTokenException or, if truncate is set, it is cut at the maximum
+     * length and the longest match within it is returned.
+     */
+    public TokenReader setMaxTokenLength(int maxTokenLength, boolean truncate) {
+        if (maxTokenLength < 1) {
+            throw new IllegalArgumentException("maxTokenLength must be positive!");
+        }
+
+        this.maxTokenLength = maxTokenLength;
+        this.truncate = truncate;
+
+        updateReadLimit();
+
+        return this;
+    }
+
+    final public int getMaxTokenLength() { return maxTokenLength; }
+
     TokenReader init() throws IOException {
-        this.bufLen = in.read(buffer, 0, bufSize);
+        if (in != null) {
+            this.bufLen = Math.max(0, in.read(buffer, 0, bufSize));
+        }
+
+        updateReadLimit();
 
         return this;
     }
     
+    /*
+     * Sets the offset of the first character, e.g. to continue the offsets of
+     * an input which has been read before. Must be called before reading.
+     */
+    final void setInputOffset(long inputOffset) {
+        delta += inputOffset - getEndOffset();
+        lineOffset = startOffset = lineStart = startLineStart = inputOffset;
+    }
+
+    // continues the offsets and positions of the checkpoint, must be called before reading
+    final void resume(Checkpoint checkpoint) {
+        setInputOffset(checkpoint.getOffset());
+
+        if (checkpoint.getLine() == 0) {
+            trackPositions = false;
+        } else {
+            line = startLine = checkpoint.getLine();
+            lineStart = startLineStart = checkpoint.getOffset() - checkpoint.getColumn() + 1;
+        }
+    }
+
+    /*
+     * Returns a checkpoint at the token start or after the last character
+     * read. A reader for pushing adds the characters after it.
+     */
+    final Checkpoint checkpoint(boolean atTokenStart, byte[] pendingBytes) {
+        int pos = atTokenStart ? offset : bufPos;
+        long checkpointLine = 0;
+        int checkpointColumn = 0;
+
+        if (trackPositions) {
+            countToTokenStart();
+
+            if (atTokenStart) {
+                checkpointLine = startLine;
+                checkpointColumn = (int) (startOffset - startLineStart) + 1;
+            } else {
+                countTo(getEndOffset());
+                checkpointLine = line;
+                checkpointColumn = column();
+            }
+        }
+
+        char[] pending = push ? Arrays.copyOfRange(buffer, pos, bufLen) : new char[0];
+
+        return new Checkpoint(delta + pos, checkpointLine, checkpointColumn, pending, pendingBytes);
+    }
+
+    /*
+     * Keeps the characters from the offset on in the buffer, e.g. for looking
+     * behind the token. A negative offset removes the pin.
+     */
+    final void pin(long inputOffset) {
+        if (inputOffset >= 0 && inputOffset < delta) {
+            throw new IllegalArgumentException("The offset " + inputOffset + " is not in the buffer any more!");
+        }
+
+        pinned = inputOffset;
+    }
+
+    // the buffer index of an input offset in the buffer
+    final int indexOf(long inputOffset) {
+        if (inputOffset < delta || inputOffset > delta + bufLen) {
+            throw new IllegalArgumentException("The offset " + inputOffset + " is not in the buffer!");
+        }
+
+        return (int) (inputOffset - delta);
+    }
+
     final protected char[] getBuffer() { return buffer; }
     final protected int getOffset() { return offset; }
-    final public int getPos() { return bufPos + delta; }
-    final public int getXPos()  { return xstart; }
-    final public int getYPos()  { return ystart; }
-    final public int getXEndPos() { return xpos; }
-    final public int getYEndPos() { return ypos; }
-    final protected int getDelta() { return delta; }
+    // offset of the token start from the beginning of the input
+    final public long getStartOffset() { return delta + offset; }
+    // offset after the last character read from the beginning of the input
+    final public long getEndOffset() { return delta + bufPos; }
+    final public int getPos() { return (int) (delta + bufPos); }
+    final protected int getDelta() { return (int) delta; }
     final protected int getBufSize() { return bufSize; }
-    
-    final protected int read() throws IOException {
-        if (bufPos == bufLen) { // increase buffer
-            if (bufPos < bufSize) {
-                return -1; // no more characters are available
-            } else {
-                if (offset == 0) {
-                    int newBufSize = bufSize + origBufSize;
-                    char[] newBuffer = new char[newBufSize];
-                
-                    System.arraycopy(buffer, 0, newBuffer, 0, bufPos);
-
-                    buffer = newBuffer;
-                    bufSize = newBufSize;
-                
-                    int noOfReadChars = in.read(buffer, bufPos, bufSize - bufPos);
-                
-                    bufLen += noOfReadChars < 0 ? 0: noOfReadChars;
-                } else {
-                    System.arraycopy(buffer, offset, buffer, 0, bufSize - offset);
-                    bufPos -= offset;
-                    delta = offset;
-                    offset = 0;
-                    
-                    int noOfReadChars = in.read(buffer, bufPos, bufSize - bufPos);
-                    
-                    bufLen = noOfReadChars < 0 ? 0: bufPos + noOfReadChars;
-                }
+
+    // the column of the token start
+    final public int getXPos() {
+        countToTokenStart();
+
+        return (int) (startOffset - startLineStart) + 1;
+    }
+
+    // the line of the token start
+    final public int getYPos() {
+        return (int) getStartLine();
+    }
+
+    // the line of the token start as long for inputs with more than 2^31 lines
+    final public long getStartLine() {
+        countToTokenStart();
+
+        return startLine;
+    }
+
+    // the column after the last character read
+    final public int getXEndPos() {
+        countToTokenStart();
+        countTo(getEndOffset());
+
+        return column();
+    }
+
+    // the line of the last character read
+    final public int getYEndPos() {
+        return (int) getEndLine();
+    }
+
+    final public long getEndLine() {
+        countToTokenStart();
+        countTo(getEndOffset());
+
+        return line;
+    }
+
+    /**
+     * Switches the positions (getXPos, getYPos, ...) off or on. They are on by
+     * default, which costs a search for line ends in the characters shifted
+     * out of the buffer. Without them, this search is skipped. The positions
+     * can only be switched on before the first character is read.
+     */
+    public TokenReader setTrackPositions(boolean trackPositions) {
+        if (trackPositions && !this.trackPositions && getEndOffset() > lineOffset) {
+            throw new IllegalStateException("Positions can't be switched on after reading!");
+        }
+
+        this.trackPositions = trackPositions;
+
+        return this;
+    }
+
+    private void countToTokenStart() {
+        if (!trackPositions) {
+            throw new IllegalStateException("Positions are switched off!");
+        }
+
+        long start = getStartOffset();
+
+        if (start < lineOffset) { // back to the last token start
+            lineOffset = startOffset;
+            line = startLine;
+            lineStart = startLineStart;
+        }
+
+        countTo(start);
+
+        startOffset = lineOffset;
+        startLine = line;
+        startLineStart = lineStart;
+    }
+
+    // the column at lineOffset
+    private int column() {
+        return (int) (lineOffset - lineStart) + 1;
+    }
+
+    // counts the line ends of the characters in the buffer up to the offset
+    private void countTo(long position) {
+        int end = (int) (position - delta);
+
+        for (int pos = (int) (lineOffset - delta); pos < end; pos++) {
+            char ch = buffer[pos];
+
+            if (ch <= '\r' && (ch == '\n' || ch == '\r')) {
+                if (ch == '\n') line++;
+
+                lineStart = delta + pos + 1;
             }
         }
-        
-        if (bufPos == bufLen) {
+
+        lineOffset = Math.max(lineOffset, position);
+    }
+
+    final protected int read() throws IOException, UnknownTokenException {
+        if (bufPos == readLimit && (atTokenLimit() || !fill())) {
             return -1;
         }
         
-        char ch = buffer[bufPos++];
-        
-        switch (ch) {
-            case '\n': ypos++;
-            case '\r': xpos = 1;
+        return buffer[bufPos++];
+    }
+
+    // the characters which can be read for the current token end before bufLen or at the maximum length
+    private void updateReadLimit() {
+        readLimit = (int) Math.min(bufLen, (long) offset + maxTokenLength + (truncate ? 0 : 1));
+    }
+
+    /*
+     * Returns true if no more characters can be read for the current token,
+     * because it has reached the maximum length. Without truncating one
+     * character after the maximum length is read (see checkTokenLength).
+     */
+    final boolean atTokenLimit() {
+        return bufPos - offset >= (long) maxTokenLength + (truncate ? 0 : 1);
+    }
+
+    /*
+     * Called when the scanner has stopped reading a token. Without truncating
+     * the read stopped at the limit is an UnknownTokenException, if no token has
+     * been accepted (marked) or the accepted token is longer than the maximum
+     * length. A shorter token accepted before the limit is returned.
+     */
+    final void checkTokenLength(boolean accepted) throws UnknownTokenException {
+        if (!truncate && atTokenLimit() && (!accepted || match_pos - offset > maxTokenLength)) {
+            throw new UnknownTokenException("Token longer than " + maxTokenLength + " chars '"
+                + new String(buffer, offset, Math.min(bufPos - offset, 40)) + "...'!");
+        }
+    }
+    
+    // reads more characters into the buffer, returns false if no more characters are available
+    private boolean fill() throws IOException, UnknownTokenException {
+        if (in == null || eof) {
+            return false; // no more characters are available
+        }
+
+        if (bufLen == bufSize) {
+            makeRoom(1);
+        }
+
+        int noOfReadChars;
+
+        do { // a short read is not the end of the input
+            noOfReadChars = in.read(buffer, bufLen, bufSize - bufLen);
+        } while (noOfReadChars == 0);
+
+        if (noOfReadChars < 0) {
+            eof = true;
+
+            return false;
+        }
+
+        bufLen += noOfReadChars;
+
+        updateReadLimit();
+
+        return true;
+    }
+
+    /*
+     * Makes room for needed characters after bufLen. The accepted characters
+     * are shifted out of the buffer. If the rest doesn't fit, the buffer is
+     * doubled. After a long token, it shrinks back to the initial size.
+     */
+    private void makeRoom(int needed) {
+        int shift = pinned < 0 ? offset : (int) Math.max(0, Math.min(offset, pinned - delta));
+        int rest = bufLen - shift;
+        int newBufSize = bufSize;
+
+        if (rest + needed > bufSize) {
+            // the maximum token length limits the token, not the buffer, which may keep pinned input
+            newBufSize = (int) Math.min(Math.max((long) bufSize * 2, (long) rest + needed), Integer.MAX_VALUE - 8);
+        } else if (bufSize > origBufSize && rest + needed <= origBufSize / 2) {
+            newBufSize = origBufSize;
+        }
+
+        if (shift > 0 && trackPositions) {
+            countTo(delta + shift);
+        }
+
+        char[] newBuffer = newBufSize == bufSize ? buffer : new char[newBufSize];
+
+        System.arraycopy(buffer, shift, newBuffer, 0, rest);
+
+        buffer = newBuffer;
+        bufSize = newBufSize;
+        bufPos -= shift;
+        bufLen -= shift;
+        match_pos -= shift;
+        offset -= shift;
+        delta += shift;
+
+        updateReadLimit();
+    }
+
+    // appends characters to the buffer of a reader created for pushing
+    final void append(char[] chars, int start, int length) {
+        if (!push) {
+            throw new IllegalStateException("Only a reader for pushing can append characters!");
+        }
+
+        if (bufSize - bufLen < length) {
+            makeRoom(length);
+        }
+
+        System.arraycopy(chars, start, buffer, bufLen, length);
+
+        bufLen += length;
+
+        updateReadLimit();
+    }
+
+    /*
+     * Skips the characters before the next position where a token may start.
+     * The skipped characters are accepted. Returns false if the end of the
+     * input is reached.
+     */
+    final protected boolean skip(Prefilter prefilter) throws IOException, UnknownTokenException {
+        do {
+            bufPos = prefilter.find(buffer, bufPos, bufLen);
+
+            accepted();
+
+            if (bufPos < bufLen) {
+                return true;
+            }
+        } while (fill());
+
+        return false;
+    }
+
+    /*
+     * Reads the characters of the buffer as long as they are in one of the
+     * ranges. The ranges contain pairs of the lowest and highest character.
+     */
+    protected void readRun(char[] ranges) {
+        int pos = bufPos;
+
+        if (ranges.length == 2) {
+            char low = ranges[0];
+            char high = ranges[1];
+
+            while (pos < readLimit && buffer[pos] >= low && buffer[pos] <= high) {
+                pos++;
+            }
+        } else {
+            loop:
+            for (; pos < readLimit; pos++) {
+                char ch = buffer[pos];
+
+                for (int i = 0; i < ranges.length; i += 2) {
+                    if (ch >= ranges[i] && ch <= ranges[i + 1]) {
+                        continue loop;
+                    }
+                }
+
                 break;
-            default: xpos++;
+            }
         }
 
-        return ch;
+        bufPos = pos;
     }
-    
+
     final protected void mark() {
         match_pos = bufPos;
-        match_xpos = xpos;
-        match_ypos = ypos;
     }
     
     final protected int reset() {
         bufPos = match_pos;
-        xpos = match_xpos;
-        ypos = match_ypos;
         
-        return bufPos;
+        return getPos();
     }
     
     final protected int resetToTokenStart() {
         bufPos = offset;
-        xpos = xstart;
-        ypos = ystart;
         
-        return bufPos;
+        return getPos();
     }
     
     final protected void accepted() {
         offset = bufPos;
-        xstart = xpos;
-        ystart = ypos;
+        match_pos = bufPos;
 
-        mark();
+        updateReadLimit();
     }
     
-    final protected boolean reachedEndOfReader() {
-        return bufPos == bufLen;
+    // called between tokens, so the characters before the current position are accepted
+    final protected boolean reachedEndOfReader() throws IOException, UnknownTokenException {
+        if (bufPos < bufLen) {
+            return false;
+        }
+
+        accepted();
+
+        return !fill();
     }
 
     final protected String getNonReadString() {
@@ -160,7 +564,7 @@ public class TokenReader {
     }
 
     protected void throwUnknownTokenException() throws UnknownTokenException {
-        int trlen = bufPos - delta - offset;
+        int trlen = bufPos - offset;
 
         throw new UnknownTokenException("Unknown token '" + new String(buffer, offset, trlen) + "'!");
     }
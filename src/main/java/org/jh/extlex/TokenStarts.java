@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * Runs the table from every start position at once, to find the token which
+ * starts first after the SearchTable has found the end of a token. Every
+ * running start has its own state. If two starts reach the same state, only
+ * the first one is kept, because both read the same tokens from there on.
+ * So at most one start per state is running and the pass is linear.
+ * After a token has been found no new starts are added and only the earlier
+ * starts keep running, because they may still find a token. The pass ends
+ * when they are done.
+ * The positions are relative to the first start.
+ */
+final class TokenStarts {
+    private final int width;
+    private final int startState;
+    private final boolean[] finals;
+    private final int[] seen;
+    private int[] states;
+    private int[] starts;
+    private int[] nextStates;
+    private int[] nextStarts;
+    private int count = 0;
+    private int stamp = 0;
+    private int first = -1;
+
+    TokenStarts(int width, int startState, boolean[] finals) {
+        this.width = width;
+        this.startState = startState;
+        this.finals = finals;
+        this.seen = new int[finals.length];
+        this.states = new int[finals.length];
+        this.starts = new int[finals.length];
+        this.nextStates = new int[finals.length];
+        this.nextStarts = new int[finals.length];
+    }
+
+    void clear() {
+        count = 0;
+        first = -1;
+    }
+
+    /*
+     * Reads the column col at the position at, a new start is added before.
+     * Returns false if the pass is done.
+     */
+    boolean step(int[] next, int col, int at) {
+        if (first == -1 && (count == 0 || seen[startState] != stamp)) {
+            states[count] = startState;
+            starts[count++] = at;
+        }
+
+        int nextCount = 0;
+
+        stamp++;
+
+        for (int i = 0; i < count; i++) {
+            int state = next[states[i] * width + col];
+
+            if (state == DTable.NO_STATE || seen[state] == stamp) {
+                continue;
+            }
+
+            seen[state] = stamp;
+
+            if (finals[state] && (first == -1 || starts[i] <= first)) {
+                first = starts[i];
+            }
+
+            nextStates[nextCount] = state;
+            nextStarts[nextCount++] = starts[i];
+        }
+
+        while (first != -1 && nextCount > 0 && nextStarts[nextCount - 1] >= first) {
+            nextCount--;
+        }
+
+        int[] swap = states;
+
+        states = nextStates;
+        nextStates = swap;
+        swap = starts;
+        starts = nextStarts;
+        nextStarts = swap;
+        count = nextCount;
+
+        return first == -1 || count > 0;
+    }
+
+    // the start of the first token or -1
+    int first() { return first; }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+/**
+ * A reusable view of the characters of a token in the buffer of a scanner.
+ * It allows to compare, hash and parse a token without creating a String.
+ * The view is only valid until the next call of hasNext of the scanner,
+ * because then the buffer may be shifted or replaced. toString copies the
+ * characters into a String, which stays valid.
+ */
+public final class TokenView implements CharSequence {
+    private char[] buffer = new char[0];
+    private int start = 0;
+    private int length = 0;
+
+    final TokenView set(char[] buffer, int start, int length) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+
+        return this;
+    }
+
+    public char[] getBuffer() { return buffer; }
+    public int getStart() { return start; }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+
+        return buffer[start + index];
+    }
+
+    // a view of a part of the token with the same lifetime
+    @Override
+    public TokenView subSequence(int from, int to) {
+        if (from < 0 || from > to || to > length) {
+            throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length);
+        }
+
+        return new TokenView().set(buffer, start + from, to - from);
+    }
+
+    public boolean contentEquals(CharSequence cs) {
+        if (cs.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != cs.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // the same hash code as String.hashCode of the token
+    public int hash() {
+        int h = 0;
+
+        for (int i = start, end = start + length; i < end; i++) {
+            h = 31 * h + buffer[i];
+        }
+
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, start, length);
+    }
+}
@@ -15,41 +15,290 @@
  */
 package org.jh.extlex;
 
+import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * The compiled patterns of a Lexer. A tokenizer is never changed after its
+ * creation and can be shared between threads. Every call of scan or match
+ * returns a new Scanner, which keeps the state of one scan.
+ */
 public class Tokenizer<T> {
-    private final DRootState root;
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final DTable<T> table;
+
+    Tokenizer(DTable<T> table) {
+        this.table = table;
+    }
 
-    Tokenizer(DRootState dRoot) {
-        this.root = dRoot;
+    /**
+     * Returns the patterns which may cause unbounded backtracking. After a
+     * token has been found, the scanner reads ahead for a longer token of
+     * these patterns. If no longer token is found, the characters read ahead
+     * are read again. For such patterns the scanners use the linear time mode.
+     */
+    public List<String> getBacktrackingPatterns() {
+        return table.backtrackingPatterns;
     }
 
     public Matcher<T> match(TokenReader tr) throws Exception {
-        return new Matcher<>(root, tr.init());
+        return new Matcher<>(table, tr.init());
     }
     
     public Matcher<T> match(Reader sr) throws Exception {
-        TokenReader tr = new TokenReader(sr, 256);
-        
-        return match(tr);
+        return match(sr, DEFAULT_BUFFER_SIZE);
+    }
+
+    // the buffer of the reader starts with bufferSize chars and grows for longer tokens
+    public Matcher<T> match(Reader sr, int bufferSize) throws Exception {
+        return match(new TokenReader(sr, bufferSize));
     }
 
     public Matcher<T> match(String input) throws Exception {
-        return match(new StringReader(input));
+        return match(new TokenReader(input));
     }    
 
+    public Matcher<T> match(CharSequence input) throws Exception {
+        return match(new TokenReader(input));
+    }
+
+    public Matcher<T> match(char[] input, int start, int length) throws Exception {
+        return match(new TokenReader(input, start, length));
+    }
+
+    public ByteMatcher<T> match(ByteBuffer input) {
+        checkByteTable();
+
+        return new ByteMatcher<>(table, input);
+    }
+
+    public ByteMatcher<T> match(byte[] input, int start, int length) {
+        return match(ByteBuffer.wrap(input, start, length));
+    }
+
+    /**
+     * Finds the tokens of a UTF-8 encoded file like scan(Path).
+     */
+    public ByteMatcher<T> match(Path path) throws IOException {
+        checkByteTable();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new ByteMatcher<>(table, channel, ByteScanner.WINDOW_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a scanner to which the input is pushed in chunks. The tokens are
+     * passed to the consumer as soon as they are complete.
+     */
+    public PushScanner<T> push(Consumer<? super T> consumer) {
+        checkPushable();
+
+        return new PushScanner<>(table, consumer);
+    }
+
+    /**
+     * Resumes a PushScanner from its checkpoint. The characters and bytes fed
+     * after the last completed token are scanned again.
+     */
+    public PushScanner<T> push(Consumer<? super T> consumer, Checkpoint checkpoint) throws Exception {
+        checkPushable();
+
+        PushScanner<T> scanner = new PushScanner<>(table, consumer);
+
+        scanner.resume(checkpoint);
+
+        return scanner;
+    }
+
     public Scanner<T> scan(TokenReader tr) throws Exception {
-        return new Scanner<>(root, tr.init());
+        return new Scanner<>(table, tr.init());
     }
     
     public Scanner<T> scan(Reader sr) throws Exception {
-        TokenReader tr = new TokenReader(sr, 256);
-        
+        return scan(sr, DEFAULT_BUFFER_SIZE);
+    }
+
+    // the buffer of the reader starts with bufferSize chars and grows for longer tokens
+    public Scanner<T> scan(Reader sr, int bufferSize) throws Exception {
+        return scan(new TokenReader(sr, bufferSize));
+    }
+
+    /**
+     * Resumes a scan from the checkpoint of a Scanner. The reader must start
+     * at the offset of the checkpoint. Offsets, lines and columns continue
+     * from the checkpoint.
+     */
+    public Scanner<T> scan(Reader sr, Checkpoint checkpoint) throws Exception {
+        TokenReader tr = new TokenReader(sr, DEFAULT_BUFFER_SIZE);
+
+        tr.resume(checkpoint);
+
         return scan(tr);
     }
 
     public Scanner<T> scan(String input) throws Exception {
-        return scan(new StringReader(input));
+        return scan(new TokenReader(input));
     }    
+
+    public Scanner<T> scan(CharSequence input) throws Exception {
+        return scan(new TokenReader(input));
+    }
+
+    public Scanner<T> scan(char[] input, int start, int length) throws Exception {
+        return scan(new TokenReader(input, start, length));
+    }
+
+    /**
+     * Scans the segments as one input without concatenating them. A token may
+     * straddle segments. The offsets are counted over all segments.
+     */
+    public Scanner<T> scan(char[][] segments) throws Exception {
+        return scan(new SegmentReader(segments));
+    }
+
+    public Scanner<T> scan(CharBuffer[] segments) throws Exception {
+        return scan(new SegmentReader(segments));
+    }
+
+    // the segments are decoded as UTF-8, the offsets are in chars
+    public Scanner<T> scan(ByteBuffer[] segments) throws Exception {
+        return scan(new SegmentReader(segments));
+    }
+
+    public Matcher<T> match(char[][] segments) throws Exception {
+        return match(new SegmentReader(segments));
+    }
+
+    public Matcher<T> match(CharBuffer[] segments) throws Exception {
+        return match(new SegmentReader(segments));
+    }
+
+    public Matcher<T> match(ByteBuffer[] segments) throws Exception {
+        return match(new SegmentReader(segments));
+    }
+
+    private Scanner<T> scan(SegmentReader reader) throws Exception {
+        return scan(reader, bufferSize(reader));
+    }
+
+    private Matcher<T> match(SegmentReader reader) throws Exception {
+        return match(reader, bufferSize(reader));
+    }
+
+    // the buffer holds a segment, but not more than 8192 chars
+    private static int bufferSize(SegmentReader reader) {
+        return Math.max(DEFAULT_BUFFER_SIZE, Math.min(reader.getMaxSegmentLength(), 8192));
+    }
+
+    /**
+     * Scans UTF-8 encoded bytes from the position to the limit of the buffer
+     * without decoding them. Recursive patterns are not supported.
+     */
+    public ByteScanner<T> scan(ByteBuffer input) {
+        checkByteTable();
+
+        return new ByteScanner<>(table, input);
+    }
+
+    public ByteScanner<T> scan(byte[] input, int start, int length) {
+        return scan(ByteBuffer.wrap(input, start, length));
+    }
+
+    public ByteScanner<T> scan(byte[] input) {
+        return scan(ByteBuffer.wrap(input));
+    }
+
+    /**
+     * Scans a UTF-8 encoded file, which is mapped into memory. The positions
+     * are byte offsets in the file. Files larger than 1 GB are mapped in
+     * windows, so a token can't be longer than 1 GB. The file is closed at
+     * the end of the input or by ByteScanner.close.
+     */
+    public ByteScanner<T> scan(Path path) throws IOException {
+        return scan(path, null);
+    }
+
+    // resumes the scan of the file from the checkpoint of a ByteScanner
+    public ByteScanner<T> scan(Path path, Checkpoint checkpoint) throws IOException {
+        checkByteTable();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new ByteScanner<>(table, channel, ByteScanner.WINDOW_SIZE, checkpoint, 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Scans a UTF-8 encoded file which is still growing. At the end of the
+     * file, the scanner polls its size every pollMillis milliseconds and
+     * continues with the new bytes. A token at the end of the file is kept
+     * pending until it is followed by a character which doesn't belong to it.
+     * hasNext waits for the next token until ByteScanner.stop or close is
+     * called or the thread is interrupted. With a checkpoint the file is
+     * followed from its offset on.
+     */
+    public ByteScanner<T> follow(Path path, Checkpoint checkpoint, long pollMillis) throws IOException {
+        checkByteTable();
+
+        if (pollMillis <= 0) {
+            throw new IllegalArgumentException("pollMillis must be positive!");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new ByteScanner<>(table, channel, ByteScanner.WINDOW_SIZE, checkpoint, pollMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public ByteScanner<T> follow(Path path, long pollMillis) throws IOException {
+        return follow(path, null, pollMillis);
+    }
+
+    // the tokens of patterns without token and group methods, which aren't skipped, can only be pulled
+    private void checkPushable() {
+        for (DStateFin<T> fin : table.finStates) {
+            if (fin != null && !fin.skip && fin.matchToken == null
+                && (fin.primitiveToken != null || !hasGroupMeths(fin.ruleNo))) {
+                throw new UnsupportedOperationException("The tokens of the pattern " + fin.regexp + " can't be pushed!");
+            }
+        }
+    }
+
+    private boolean hasGroupMeths(int ruleNo) {
+        for (BracketInfo bracketInfo : table.brackets) {
+            if (bracketInfo.ruleNo == ruleNo) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void checkByteTable() {
+        if (table.getByteTable() == null) {
+            throw new UnsupportedOperationException("Recursive patterns can't scan UTF-8 bytes!");
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex.util;
+
+import java.util.Arrays;
+
+/**
+ * a growable list of primitive ints. It is used as list and as stack.
+ */
+public final class IntList {
+    private int[] elems;
+    private int size = 0;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        elems = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == elems.length) {
+            elems = Arrays.copyOf(elems, size * 2);
+        }
+
+        elems[size++] = value;
+    }
+
+    public void push(int value) {
+        add(value);
+    }
+
+    public int pop() {
+        return elems[--size];
+    }
+
+    public int get(int pos) {
+        return elems[pos];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elems, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.jh.extlex.exception.UnknownTokenException;
+import org.junit.jupiter.api.Test;
+
+public class ByteScannerTest {
+    private final List<String> groups = new ArrayList<>();
+
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z\u00e9\u4e2d]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("\"[^\"]*\"", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("#([a-z\u4e2d]+)", (char[] t, int s, int l) -> new String(t, s, l),
+                (char[] t, int s, int l) -> groups.add(new String(t, s, l)))
+            .addPattern("[ \n]+")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testByteOffsets() throws Exception {
+        byte[] input = "ab \u00e9\u4e2d \"\ud83d\ude00x\"\n#\u4e2da".getBytes(StandardCharsets.UTF_8);
+        ByteScanner<String> scanner = createTokenizer().scan(input);
+        TokenBatch batch = new TokenBatch(8, true);
+
+        assertEquals(4, scanner.fillBatch(batch));
+        assertArrayEquals(new long[] {0, 3, 9, 17}, Arrays.copyOf(batch.getStarts(), 4));
+        assertArrayEquals(new int[] {2, 5, 7, 5}, Arrays.copyOf(batch.getLengths(), 4));
+        assertArrayEquals(new int[] {1, 1, 1, 2}, Arrays.copyOf(batch.getLines(), 4));
+        assertArrayEquals(new int[] {1, 4, 7, 1}, Arrays.copyOf(batch.getColumns(), 4));
+    }
+
+    @Test
+    public void testSameTokensAsChars() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        String[] chars = {"a", "b", "\u00e9", "\u4e2d", "\"", "\ud83d\ude00", "#", "x", " ", "\n"};
+        Random random = new Random(3);
+
+        for (int round = 0; round < 300; round++) {
+            StringBuilder input = new StringBuilder();
+
+            for (int i = random.nextInt(80); i > 0; i--) {
+                input.append(chars[random.nextInt(chars.length)]);
+            }
+
+            String text = input.toString();
+            ByteBuffer direct = ByteBuffer.allocateDirect(text.length() * 4 + 2);
+
+            direct.put((byte) 'x').put(text.getBytes(StandardCharsets.UTF_8)).flip().position(1);
+
+            assertEquals(scan(() -> tokenizer.scan(text)), scan(() -> tokenizer.scan(direct)), text);
+        }
+    }
+
+    @Test
+    public void testInvalidBytes() throws Exception {
+        ByteScanner<String> scanner = createTokenizer().scan(new byte[] {'a', (byte) 0xC0, (byte) 0x80});
+
+        assertEquals("a", scanner.getNextToken());
+        assertThrows(UnknownTokenException.class, scanner::hasNext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> scan(ScannerFactory factory) {
+        List<String> tokens = new ArrayList<>();
+
+        groups.clear();
+
+        try {
+            Object scanner = factory.create();
+
+            if (scanner instanceof Scanner) {
+                ((Scanner<String>) scanner).getAllTokens(tokens::add);
+            } else {
+                ((ByteScanner<String>) scanner).getAllTokens(tokens::add);
+            }
+        } catch (Exception e) {
+            tokens.add(e.getClass().getSimpleName());
+        }
+
+        tokens.addAll(groups);
+
+        return tokens;
+    }
+
+    private interface ScannerFactory {
+        Object create() throws Exception;
+    }
+
+    @Test
+    public void testGroupsClosedAfterTheToken() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("a|a(b)cd", (char[] t, int s, int l) -> new String(t, s, l),
+                (char[] t, int s, int l) -> groups.add(new String(t, s, l)))
+            .addPattern("[b-e]", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.scan("abceabcd").getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("a", "b", "c", "e", "abcd"), tokens);
+        assertEquals(Arrays.asList("b"), groups);
+
+        tokens.clear();
+        groups.clear();
+        tokenizer.scan("abceabcd".getBytes(StandardCharsets.UTF_8)).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("a", "b", "c", "e", "abcd"), tokens);
+        assertEquals(Arrays.asList("b"), groups);
+    }
+
+    @Test
+    public void testSupplementaryCharacters() throws Exception {
+        Tokenizer<String> single = new Lexer<String>()
+            .addPattern(".", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+        Tokenizer<String> run = new Lexer<String>()
+            .addPattern("[^ \u00e9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" ")
+            .createTokenizer();
+        String text = "a\ud83d\ude00b";
+        List<String> tokens = new ArrayList<>();
+
+        // the chars of a pair are single tokens in the char engines
+        single.scan(text).getAllTokens(tokens::add);
+        single.match(text).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("a", "\ud83d", "\ude00", "b", "a", "\ud83d", "\ude00", "b"), tokens);
+
+        // the byte engines can't split the character
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        tokens.clear();
+        single.scan(bytes).getAllTokens(tokens::add);
+        single.match(bytes, 0, bytes.length).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("a", "\ud83d\ude00", "b", "a", "\ud83d\ude00", "b"), tokens);
+
+        String runText = "a\ud83d\ude00b c";
+
+        tokens.clear();
+        run.scan(runText).getAllTokens(tokens::add);
+        run.scan(runText.getBytes(StandardCharsets.UTF_8)).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("a\ud83d\ude00b", "c", "a\ud83d\ude00b", "c"), tokens);
+    }
+}
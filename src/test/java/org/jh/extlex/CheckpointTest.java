@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class CheckpointTest {
+    private static final String INPUT = "ab cd\nef \u00e9\u00e9 gh\n\nij kl";
+
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z\u00e9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \n]+")
+            .createTokenizer();
+    }
+
+    private static Checkpoint copy(Checkpoint checkpoint) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        checkpoint.writeTo(new DataOutputStream(bytes));
+
+        return Checkpoint.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void testResumeReader() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        Scanner<String> scanner = tokenizer.scan(new StringReader(INPUT), 4);
+
+        assertEquals("ab", scanner.getNextToken());
+        assertEquals("cd", scanner.getNextToken());
+        assertEquals("ef", scanner.getNextToken());
+
+        Checkpoint checkpoint = copy(scanner.checkpoint());
+
+        assertEquals(8, checkpoint.getOffset());
+        assertEquals(2, checkpoint.getLine());
+        assertEquals(3, checkpoint.getColumn());
+
+        List<String> tokens = new ArrayList<>();
+
+        scanner = tokenizer.scan(new StringReader(INPUT.substring((int) checkpoint.getOffset())), checkpoint);
+
+        while (scanner.hasNext()) {
+            tokens.add(scanner.getToken() + "@" + scanner.tokenStart() + ":" + scanner.tr.getYPos() + ":" + scanner.tr.getXPos());
+        }
+
+        assertEquals(Arrays.asList("\u00e9\u00e9@9:2:4", "gh@12:2:7", "ij@16:4:1", "kl@19:4:4"), tokens);
+    }
+
+    @Test
+    public void testResumeFile() throws Exception {
+        Path file = Files.createTempFile("extlex", ".txt");
+
+        try {
+            Files.write(file, INPUT.getBytes(StandardCharsets.UTF_8));
+
+            Tokenizer<String> tokenizer = createTokenizer();
+            Checkpoint checkpoint;
+
+            try (ByteScanner<String> scanner = tokenizer.scan(file)) {
+                scanner.getNextToken();
+                scanner.getNextToken();
+                scanner.getNextToken();
+                assertEquals("\u00e9\u00e9", scanner.getNextToken());
+
+                checkpoint = copy(scanner.checkpoint());
+
+                assertEquals(4, scanner.getXPos());
+            }
+
+            assertEquals(13, checkpoint.getOffset());
+            assertEquals(6, checkpoint.getColumn());
+
+            List<String> tokens = new ArrayList<>();
+
+            try (ByteScanner<String> scanner = tokenizer.scan(file, checkpoint)) {
+                while (scanner.hasNext()) {
+                    tokens.add(scanner.getToken() + "@" + scanner.tokenStart() + ":" + scanner.getYPos() + ":" + scanner.getXPos());
+                }
+            }
+
+            assertEquals(Arrays.asList("gh@14:2:7", "ij@18:4:1", "kl@21:4:4"), tokens);
+
+            long line = 3L << 31;
+
+            try (ByteScanner<String> scanner = tokenizer.scan(file, new Checkpoint(13, line, 6, new char[0], new byte[0]))) {
+                scanner.hasNext();
+                scanner.hasNext();
+
+                assertEquals(line + 2, scanner.getStartLine());
+                assertEquals(line + 2, copy(scanner.checkpoint()).getLine());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testResumePushScanner() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        List<String> tokens = new ArrayList<>();
+        byte[] bytes = INPUT.getBytes(StandardCharsets.UTF_8);
+        PushScanner<String> scanner = tokenizer.push(tokens::add);
+
+        scanner.feed(ByteBuffer.wrap(bytes, 0, 10));
+
+        assertEquals(Arrays.asList("ab", "cd", "ef"), tokens);
+
+        Checkpoint checkpoint = copy(scanner.checkpoint());
+
+        scanner = tokenizer.push(tokens::add, checkpoint);
+        scanner.feed(ByteBuffer.wrap(bytes, 10, bytes.length - 10));
+        scanner.endOfInput();
+
+        assertEquals(Arrays.asList("ab", "cd", "ef", "\u00e9\u00e9", "gh", "ij", "kl"), tokens);
+    }
+}
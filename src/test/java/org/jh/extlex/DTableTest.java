@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.junit.jupiter.api.Test;
+
+public class DTableTest {
+    @Test
+    public void testCharClasses() throws Exception {
+        DTable<String> table = new DTable<>(new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .createDFA());
+
+        assertEquals(table.classOf('a'), table.classOf('z'));
+        assertEquals(table.classOf('0'), table.classOf('9'));
+        assertEquals(table.classOf(' '), table.classOf('\u4e00'));
+        assertNotEquals(table.classOf('a'), table.classOf('0'));
+        assertNotEquals(table.classOf('a'), table.classOf(' '));
+        assertEquals(3, table.classCount);
+    }
+
+    @Test
+    public void testRuleNo() throws Exception {
+        DTable<String> table = new DTable<>(new Lexer<String>()
+            .addPattern("a", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("b")
+            .createDFA());
+        int a = table.next[table.startState * table.classCount + table.classOf('a')];
+        int b = table.next[table.startState * table.classCount + table.classOf('b')];
+
+        assertEquals(-1, table.accept[table.startState]);
+        assertEquals(0, table.accept[a]);
+        assertEquals(1, table.accept[b]);
+    }
+
+    @Test
+    public void testLoops() throws Exception {
+        DTable<String> table = new DTable<>(new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("\"[^\"]*\"", (char[] t, int s, int l) -> new String(t, s, l))
+            .createDFA());
+        int word = table.next[table.startState * table.classCount + table.classOf('a')];
+        int string = table.next[table.startState * table.classCount + table.classOf('"')];
+
+        assertEquals(null, table.loops[table.startState]);
+        assertArrayEquals(new char[] {'a', 'z'}, table.loops[word]);
+        assertArrayEquals(new char[] {0, '"' - 1, '"' + 1, Character.MAX_VALUE}, table.loops[string]);
+    }
+
+    @Test
+    public void testNumberStates() throws Exception {
+        DTable<String> table = new DTable<>(new Lexer<String>()
+            .addPattern("[a-z][a-z0-9]*", (char[] t, int s, int l) -> new String(t, s, l))
+            .addIntegerLiteral("[0-9]+")
+            .createDFA());
+        int word = table.next[table.startState * table.classCount + table.classOf('a')];
+        int number = table.next[table.startState * table.classCount + table.classOf('0')];
+
+        assertEquals(false, table.numberStates[word]);
+        assertEquals(true, table.numberStates[number]);
+        assertArrayEquals(new char[] {'0', '9'}, table.loops[number]);
+        assertEquals(null, new DTable<>(new Lexer<String>().addPattern("[0-9]+").createDFA()).numberStates);
+    }
+
+    @Test
+    public void testInvertedCharSet() throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        new Lexer<String>()
+            .addPattern("\"[^\"]*\"", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" ")
+            .scan("\"a\u00e4\uffff\" \"\"")
+            .getAllTokens((t) -> tokens.add(t));
+
+        assertArrayEquals(new String[]{"\"a\u00e4\uffff\"", "\"\""}, tokens.toArray());
+    }
+}
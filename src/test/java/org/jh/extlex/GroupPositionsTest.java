@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class GroupPositionsTest {
+    @Test
+    public void testNestedGroups() {
+        GroupPositions groups = new GroupPositions(2);
+
+        groups.open(0, 0);
+        groups.open(1, 1);
+        groups.open(0, 2);
+        groups.close(0, 3);
+        groups.close(1, 4);
+        groups.close(0, 5);
+
+        assertEquals(3, groups.size());
+        assertEquals(0, groups.getSlot(0));
+        assertEquals(2, groups.getStartPos(0));
+        assertEquals(3, groups.getEndPos(0));
+        assertEquals(1, groups.getSlot(1));
+        assertEquals(1, groups.getStartPos(1));
+        assertEquals(4, groups.getEndPos(1));
+        assertEquals(0, groups.getSlot(2));
+        assertEquals(0, groups.getStartPos(2));
+        assertEquals(5, groups.getEndPos(2));
+    }
+
+    @Test
+    public void testClearAndGrow() {
+        GroupPositions groups = new GroupPositions(1);
+
+        groups.open(0, 7);
+        groups.clear();
+        groups.close(0, 8);
+
+        assertEquals(0, groups.size());
+
+        for (int i = 0; i < 100; i++) {
+            groups.open(0, i);
+            groups.close(0, i + 1);
+        }
+
+        assertEquals(100, groups.size());
+        assertEquals(99, groups.getStartPos(99));
+        assertEquals(100, groups.getEndPos(99));
+    }
+}
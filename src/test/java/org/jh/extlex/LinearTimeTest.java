@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LinearTimeTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("a", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("a*b", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("c(ac)*d", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("c")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testBacktrackingPatterns() throws Exception {
+        assertEquals(Arrays.asList("a*b", "c(ac)*d"), createTokenizer().getBacktrackingPatterns());
+        assertTrue(new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+")
+            .createTokenizer().getBacktrackingPatterns().isEmpty());
+    }
+
+    @Test
+    public void testLongRun() throws Exception {
+        char[] chars = new char[200000];
+
+        Arrays.fill(chars, 'a');
+
+        String input = new String(chars);
+        Scanner<String> scanner = createTokenizer().scan(input);
+
+        assertTrue(scanner.isLinearTime());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            int count = 0;
+
+            while (scanner.getNextToken() != null) {
+                count++;
+            }
+
+            assertEquals(input.length(), count);
+        });
+    }
+
+    @Test
+    public void testSameTokens() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        Random random = new Random(17);
+
+        for (int round = 0; round < 500; round++) {
+            StringBuilder input = new StringBuilder();
+
+            for (int i = random.nextInt(60); i > 0; i--) {
+                input.append("aaabccd".charAt(random.nextInt(7)));
+            }
+
+            Scanner<String> linear = tokenizer.scan(input.toString());
+            Scanner<String> backtracking = tokenizer.scan(input.toString());
+
+            backtracking.setLinearTime(false);
+
+            assertFalse(backtracking.isLinearTime());
+
+            List<String> expected = scan(backtracking);
+
+            assertEquals(expected, scan(linear), input.toString());
+
+            ByteScanner<String> bytes = tokenizer.scan(input.toString().getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(bytes.isLinearTime());
+            assertEquals(expected, scan(bytes), input.toString());
+        }
+    }
+
+    @Test
+    public void testRunsInLinearTime() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("/", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("/\\*[a-z ]*\\*/")
+            .addPattern(" +")
+            .createTokenizer();
+        String text = "identifier /* comment */ a / b /* no end     x";
+        int[] runs = new int[1];
+        TokenReader tr = new TokenReader(new StringReader(text), 8) {
+            @Override
+            protected void readRun(char[] ranges) {
+                runs[0]++;
+                super.readRun(ranges);
+            }
+        };
+        Scanner<String> scanner = tokenizer.scan(tr);
+
+        assertFalse(tokenizer.getBacktrackingPatterns().isEmpty());
+        assertTrue(scanner.isLinearTime());
+        assertEquals(Arrays.asList("identifier", "a", "/", "b", "/", "UnknownTokenException"), scan(scanner));
+        assertTrue(runs[0] >= 5, "runs " + runs[0]);
+    }
+
+    @Test
+    public void testLongRunOfBytes() throws Exception {
+        byte[] input = new byte[200000];
+
+        Arrays.fill(input, (byte) 'a');
+
+        ByteScanner<String> scanner = createTokenizer().scan(input);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            int count = 0;
+
+            while (scanner.getNextToken() != null) {
+                count++;
+            }
+
+            assertEquals(input.length, count);
+        });
+    }
+
+    @Test
+    public void testFirstStart() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("[a-x]*y", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("abcd", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("c", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+        String text = "zabcdz abcz aay";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.match(text).getAllTokens(tokens::add);
+        tokenizer.match(bytes, 0, bytes.length).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("abcd", "c", "aay", "abcd", "c", "aay"), tokens);
+    }
+
+    @Test
+    public void testSparseMatches() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("[a-x]*y", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+        char[] chars = new char[400001];
+
+        Arrays.fill(chars, 'a');
+        chars[chars.length - 1] = '5';
+
+        String input = new String(chars);
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        Matcher<String> matcher = tokenizer.match(input);
+        ByteMatcher<String> byteMatcher = tokenizer.match(bytes, 0, bytes.length);
+
+        assertFalse(matcher.isLinearTime());
+        assertFalse(byteMatcher.isLinearTime());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            List<String> tokens = new ArrayList<>();
+
+            matcher.getAllTokens(tokens::add);
+            byteMatcher.getAllTokens(tokens::add);
+
+            assertEquals(Arrays.asList("5", "5"), tokens);
+        });
+    }
+
+    private List<String> scan(ByteScanner<String> scanner) {
+        List<String> tokens = new ArrayList<>();
+
+        try {
+            scanner.getAllTokens(tokens::add);
+        } catch (Exception e) {
+            tokens.add(e.getClass().getSimpleName());
+        }
+
+        return tokens;
+    }
+
+    private List<String> scan(Scanner<String> scanner) {
+        List<String> tokens = new ArrayList<>();
+
+        try {
+            scanner.getAllTokens(tokens::add);
+        } catch (Exception e) {
+            tokens.add(e.getClass().getSimpleName());
+        }
+
+        return tokens;
+    }
+}
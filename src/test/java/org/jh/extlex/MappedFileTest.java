@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.jh.extlex.exception.UnknownTokenException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MappedFileTest {
+    private Path file;
+
+    private DTable<String> createTable() throws Exception {
+        return new DTable<>(new Lexer<String>()
+            .addPattern("[a-z\u00e9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \n]+")
+            .createDFA());
+    }
+
+    @BeforeEach
+    public void createFile() throws Exception {
+        file = Files.createTempFile("extlex", ".txt");
+    }
+
+    @AfterEach
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testTokensAcrossWindows() throws Exception {
+        DTable<String> table = createTable();
+        Tokenizer<String> tokenizer = new Tokenizer<>(table);
+        String[] words = {"ab", "\u00e9t\u00e9", "123", "x"};
+        StringBuilder input = new StringBuilder();
+        Random random = new Random(5);
+
+        for (int i = 0; i < 500; i++) {
+            input.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "\n");
+        }
+
+        String text = input.toString();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        Files.write(file, bytes);
+
+        List<String> expected = new ArrayList<>();
+
+        tokenizer.scan(text).getAllTokens(expected::add);
+
+        for (int windowSize : new int[] {7, 16, 100, bytes.length}) {
+            List<String> tokens = new ArrayList<>();
+            ByteScanner<String> scanner = new ByteScanner<>(table,
+                FileChannel.open(file, StandardOpenOption.READ), windowSize, null, 0);
+
+            while (scanner.hasNext()) {
+                String token = scanner.getToken();
+                String original = new String(bytes, (int) scanner.tokenStart(),
+                    (int) (scanner.tokenEnd() - scanner.tokenStart()), StandardCharsets.UTF_8);
+
+                assertEquals(original, token);
+
+                if (tokens.size() % 50 == 0) {
+                    String before = new String(bytes, 0, (int) scanner.tokenStart(), StandardCharsets.UTF_8);
+
+                    assertEquals(before.split("\n", -1).length, scanner.getYPos());
+                }
+
+                tokens.add(token);
+            }
+
+            assertEquals(expected, tokens, "window " + windowSize);
+        }
+    }
+
+    @Test
+    public void testMatchFile() throws Exception {
+        DTable<String> table = createTable();
+        Tokenizer<String> tokenizer = new Tokenizer<>(table);
+        String text = "--ab--12-\u00e9--" + "-x-";
+
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        List<String> expected = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.match(text).getAllTokens(expected::add);
+
+        try (ByteMatcher<String> matcher = new ByteMatcher<>(table,
+            FileChannel.open(file, StandardOpenOption.READ), 5)) {
+            matcher.getAllTokens(tokens::add);
+        }
+
+        assertEquals(expected, tokens);
+
+        tokens.clear();
+        tokenizer.match(file).getAllTokens(tokens::add);
+
+        assertEquals(expected, tokens);
+    }
+
+    @Test
+    public void testTokenLongerThanWindow() throws Exception {
+        Files.write(file, "ab abcdefghij".getBytes(StandardCharsets.UTF_8));
+
+        ByteScanner<String> scanner = new ByteScanner<>(createTable(),
+            FileChannel.open(file, StandardOpenOption.READ), 8, null, 0);
+
+        assertEquals("ab", scanner.getNextToken());
+        assertThrows(UnknownTokenException.class, scanner::hasNext);
+        scanner.close();
+
+        List<String> tokens = new ArrayList<>();
+
+        new Tokenizer<>(createTable()).scan(file).getAllTokens(tokens::add);
+
+        assertTrue(tokens.contains("abcdefghij"));
+    }
+
+    @Test
+    public void testFollowGrowingFile() throws Exception {
+        BlockingQueue<String> tokens = new LinkedBlockingQueue<>();
+        ByteScanner<String> scanner = new Tokenizer<>(createTable()).follow(file, 5);
+        Thread thread = new Thread(() -> {
+            try {
+                while (scanner.hasNext()) {
+                    tokens.add(scanner.getToken());
+                }
+
+                tokens.add("stopped");
+            } catch (Exception e) {
+                tokens.add(e.toString());
+            }
+        });
+
+        thread.start();
+
+        Files.write(file, "ab 12 cd".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertEquals("ab", tokens.poll(5, TimeUnit.SECONDS));
+        assertEquals("12", tokens.poll(5, TimeUnit.SECONDS));
+        assertNull(tokens.poll(100, TimeUnit.MILLISECONDS)); // cd may go on
+
+        Files.write(file, "ef 3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertEquals("cdef", tokens.poll(5, TimeUnit.SECONDS));
+
+        scanner.stop();
+        thread.join(5000);
+
+        assertEquals("stopped", tokens.poll());
+        assertTrue(tokens.isEmpty());
+    }
+}
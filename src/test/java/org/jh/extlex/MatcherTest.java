@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.jh.extlex.exception.UnknownTokenException;
+import org.junit.jupiter.api.Test;
+
+public class MatcherTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("abc", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("ab*d", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("x(yx)*", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+    }
+
+    @Test
+    public void testRestartAfterFailure() throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        createTokenizer().match("abd abc aabbd 12xyxyz").getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("abd", "abc", "abbd", "12", "xyx"), tokens);
+    }
+
+    @Test
+    public void testNumberLiterals() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addIntegerLiteral("[0-9]+")
+            .addDecimalLiteral("[0-9]+\\.[0-9]+")
+            .createTokenizer();
+        Matcher<String> matcher = tokenizer.match("a 12 b 3.25 c 4.");
+
+        assertEquals(12L, matcher.nextLong());
+        assertEquals(3.25, matcher.nextDouble());
+        assertEquals(4L, matcher.nextLong());
+        assertEquals(Scanner.END, matcher.nextTokenType());
+    }
+
+    @Test
+    public void testLiteralPrefix() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("xyz[0-9]*", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("xya", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.match(new TokenReader(new StringReader("aaaaaaaxyz12aaaaaaaxya"), 8)).getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("xyz12", "xya"), tokens);
+
+        compareWithTokenAtEveryPosition(tokenizer, "abcdxyz0 ");
+    }
+
+    @Test
+    public void testSameAsTokenAtEveryPosition() throws Exception {
+        compareWithTokenAtEveryPosition(createTokenizer(), "abcdxy0 ");
+    }
+
+    private void compareWithTokenAtEveryPosition(Tokenizer<String> tokenizer, String chars) throws Exception {
+        Random random = new Random(5);
+
+        for (int round = 0; round < 300; round++) {
+            StringBuilder input = new StringBuilder();
+
+            for (int i = random.nextInt(300); i > 0; i--) {
+                input.append(chars.charAt(random.nextInt(chars.length())));
+            }
+
+            String text = input.toString();
+            List<String> tokens = new ArrayList<>();
+
+            tokenizer.match(new TokenReader(new StringReader(text), 16)).getAllTokens(tokens::add);
+
+            assertEquals(findTokens(tokenizer, text), tokens, text);
+        }
+    }
+
+    // tries to scan a token at every position
+    private List<String> findTokens(Tokenizer<String> tokenizer, String text) throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        for (int pos = 0; pos < text.length();) {
+            try {
+                String token = tokenizer.scan(text.substring(pos)).getNextToken();
+
+                tokens.add(token);
+                pos += token.length();
+            } catch (UnknownTokenException e) {
+                pos++;
+            }
+        }
+
+        return tokens;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class PrimitiveTokenTest {
+    static int parseInt(char[] buffer, int start, int len) {
+        int value = 0;
+        boolean negative = buffer[start] == '-';
+
+        for (int i = negative ? start + 1 : start, end = start + len; i < end; i++) {
+            value = value * 10 + buffer[i] - '0';
+        }
+
+        return negative ? -value : value;
+    }
+
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addIntPattern("-?[0-9]+", PrimitiveTokenTest::parseInt)
+            .addLongPattern("L[0-9]+", (char[] b, int s, int l) -> Long.parseLong(new String(b, s + 1, l - 1)))
+            .addDoublePattern("-?[0-9]+\\.[0-9]+", (char[] b, int s, int l) -> Double.parseDouble(new String(b, s, l)))
+            .addPattern("[a-z]+", (char[] b, int s, int l) -> new String(b, s, l))
+            .addPattern(" +")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testScanner() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        Scanner<String> scanner = tokenizer.scan("12 -7 L12345678901 3.5 x 1");
+
+        assertEquals(12, scanner.nextInt());
+        assertEquals(-7L, scanner.nextLong());
+        assertEquals(12345678901L, scanner.nextLong());
+        assertEquals(3.5, scanner.nextDouble());
+        assertThrows(IllegalStateException.class, scanner::nextInt);
+        assertEquals("x", scanner.getToken());
+        assertEquals(1.0, scanner.nextDouble());
+        assertThrows(NoSuchElementException.class, scanner::nextInt);
+    }
+
+    @Test
+    public void testByteScannerBatchAndSum() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        ByteScanner<String> scanner = tokenizer.scan("42 2.25".getBytes(StandardCharsets.UTF_8));
+        long sum = 0;
+
+        assertEquals(42, scanner.nextInt());
+        assertEquals(2.25, scanner.nextDouble());
+        assertFalse(scanner.hasNext());
+
+        Scanner<String> batchScanner = tokenizer.scan("1 2 3 a");
+        TokenBatch batch = new TokenBatch(8);
+
+        assertEquals(4, batchScanner.fillBatch(batch));
+
+        Scanner<String> sumScanner = tokenizer.scan("1 2 3 4");
+
+        while (sumScanner.hasNext()) {
+            sum += sumScanner.intToken();
+        }
+
+        assertEquals(10, sum);
+    }
+
+    @Test
+    public void testAccumulatedLiterals() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addIntegerLiteral("-?[0-9][0-9_]*")
+            .addDecimalLiteral("-?[0-9]+\\.[0-9]+(?:e-?[0-9]+)?")
+            .addPattern("[0-9]+\\.\\.[a-z]", (char[] b, int s, int l) -> new String(b, s, l))
+            .addPattern("[ .]")
+            .createTokenizer();
+        String text = "12 -3_000 12..3 0.25 -1.5e3 123456789012345678901 9223372036854775807 1.2345678901234567 12..x";
+        Scanner<String> scanner = tokenizer.scan(text);
+
+        assertEquals(12L, scanner.nextLong());
+        assertEquals(-3000L, scanner.nextLong());
+        assertEquals(12L, scanner.nextLong());
+        assertEquals(3.0, scanner.nextDouble());
+        assertEquals(0.25, scanner.nextDouble());
+        assertEquals(-1.5e3, scanner.nextDouble());
+        assertThrows(NumberFormatException.class, scanner::nextLong);
+        assertEquals(Long.MAX_VALUE, scanner.nextLong());
+        assertEquals(1.2345678901234567, scanner.nextDouble());
+        assertEquals("12..x", scanner.getNextToken());
+        assertFalse(scanner.hasNext());
+
+        ByteScanner<String> byteScanner = tokenizer.scan(text.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(12L, byteScanner.nextLong());
+        assertEquals(-3000L, byteScanner.nextLong());
+        assertEquals(12L, byteScanner.nextLong());
+        assertEquals(3.0, byteScanner.nextDouble());
+        assertEquals(0.25, byteScanner.nextDouble());
+        assertEquals(-1.5e3, byteScanner.nextDouble());
+        assertThrows(NumberFormatException.class, byteScanner::nextLong);
+        assertEquals(Long.MAX_VALUE, byteScanner.nextLong());
+        assertEquals(1.2345678901234567, byteScanner.nextDouble());
+        assertEquals("12..x", byteScanner.getNextToken());
+        assertFalse(byteScanner.hasNext());
+    }
+
+    @Test
+    public void testIntegerLiteralAsInt() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addIntegerLiteral("-?[0-9]+")
+            .addPattern(" ")
+            .createTokenizer();
+        String text = "42 -2147483648 2147483648 12345678901234567890";
+        Scanner<String> scanner = tokenizer.scan(text);
+
+        assertEquals(42, scanner.nextInt());
+        assertEquals(Integer.MIN_VALUE, scanner.nextInt());
+        assertThrows(NumberFormatException.class, scanner::nextInt);
+        assertThrows(NumberFormatException.class, scanner::nextInt);
+        assertFalse(scanner.hasNext());
+
+        ByteScanner<String> byteScanner = tokenizer.scan(text.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(42, byteScanner.nextInt());
+        assertEquals(Integer.MIN_VALUE, byteScanner.nextInt());
+        assertThrows(NumberFormatException.class, byteScanner::nextInt);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.jh.extlex.exception.UnknownTokenException;
+import org.junit.jupiter.api.Test;
+
+public class PushScannerTest {
+    private final List<String> tokens = new ArrayList<>();
+
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[c-z\u00e9\u4e2d]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("a", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("a*b", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("#([c-z]+)", (char[] t, int s, int l) -> new String(t, s, l),
+                (char[] t, int s, int l) -> tokens.add("group " + new String(t, s, l)))
+            .addPattern("[ \n]+")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testChunksOfChars() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        String[] parts = {"a", "b", "aab", "c", "\u00e9", "\u4e2d", "#", "x", " ", "\n"};
+        Random random = new Random(11);
+
+        for (int round = 0; round < 300; round++) {
+            StringBuilder input = new StringBuilder();
+
+            for (int i = random.nextInt(60); i > 0; i--) {
+                input.append(parts[random.nextInt(parts.length)]);
+            }
+
+            String text = input.toString();
+
+            tokens.clear();
+
+            try {
+                tokenizer.scan(text).getAllTokens(tokens::add);
+            } catch (UnknownTokenException e) {
+                tokens.add("unknown");
+            }
+
+            List<String> expected = new ArrayList<>(tokens);
+            char[] chars = text.toCharArray();
+
+            tokens.clear();
+
+            PushScanner<String> scanner = tokenizer.push(tokens::add);
+
+            try {
+                for (int pos = 0; pos < chars.length;) {
+                    int length = Math.min(random.nextInt(5), chars.length - pos);
+
+                    scanner.feed(chars, pos, length);
+                    pos += length;
+                }
+
+                scanner.endOfInput();
+            } catch (UnknownTokenException e) {
+                tokens.add("unknown");
+            }
+
+            assertEquals(expected, tokens, text);
+        }
+    }
+
+    @Test
+    public void testChunksOfBytes() throws Exception {
+        byte[] input = "cd \u00e9\u4e2d\n#xy aab".getBytes(StandardCharsets.UTF_8);
+        PushScanner<String> scanner = createTokenizer().push(tokens::add);
+
+        for (int pos = 0; pos < input.length; pos++) {
+            scanner.feed(ByteBuffer.wrap(input, pos, 1));
+        }
+
+        assertEquals(Arrays.asList("cd", "\u00e9\u4e2d", "group xy", "#xy"), tokens);
+
+        scanner.endOfInput();
+
+        assertEquals(Arrays.asList("cd", "\u00e9\u4e2d", "group xy", "#xy", "aab"), tokens);
+        assertThrows(IllegalStateException.class, () -> scanner.feed(ByteBuffer.wrap(input)));
+        assertThrows(IllegalStateException.class, () -> scanner.feed("cd".toCharArray()));
+    }
+
+    @Test
+    public void testPulledPatternsAndPullApi() throws Exception {
+        Tokenizer<String> types = new Lexer<String>().addTokenType("[a-z]+").addPattern(" +").createTokenizer();
+        Tokenizer<String> ints = new Lexer<String>()
+            .addIntPattern("[0-9]+", PrimitiveTokenTest::parseInt)
+            .addPattern(" +")
+            .createTokenizer();
+
+        assertThrows(UnsupportedOperationException.class, () -> types.push(tokens::add));
+        assertThrows(UnsupportedOperationException.class, () -> ints.push(tokens::add));
+
+        PushScanner<String> scanner = createTokenizer().push(tokens::add);
+
+        scanner.feed("cd ".toCharArray());
+
+        assertThrows(IllegalStateException.class, scanner::getNextToken);
+        assertThrows(IllegalStateException.class, scanner::nextTokenType);
+        assertThrows(IllegalStateException.class, () -> scanner.fillBatch(new TokenBatch(4)));
+        assertEquals(Arrays.asList("cd"), tokens);
+    }
+
+    @Test
+    public void testUnknownToken() throws Exception {
+        PushScanner<String> scanner = createTokenizer().push(tokens::add);
+
+        scanner.feed("cd #".toCharArray());
+
+        assertThrows(UnknownTokenException.class, () -> scanner.feed(" ".toCharArray()));
+    }
+}
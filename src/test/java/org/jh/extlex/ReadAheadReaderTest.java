@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class ReadAheadReaderTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \n]+")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testSameTokens() throws Exception {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 2000; i++) {
+            input.append(i % 7 == 0 ? "word" : Integer.toString(i)).append(i % 13 == 0 ? "\n" : " ");
+        }
+
+        List<String> expected = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        Tokenizer<String> tokenizer = createTokenizer();
+
+        tokenizer.scan(input.toString()).getAllTokens(expected::add);
+
+        try (Reader reader = new ReadAheadReader(new SlowReader(input.toString()), 5, 3)) {
+            tokenizer.scan(reader, 16).getAllTokens(tokens::add);
+        }
+
+        assertEquals(expected, tokens);
+    }
+
+    @Test
+    public void testErrorOfInput() throws Exception {
+        Reader failing = new Reader() {
+            private boolean first = true;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (first) {
+                    first = false;
+                    cbuf[off] = 'a';
+
+                    return 1;
+                }
+
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ReadAheadReader reader = new ReadAheadReader(failing, 4, 2);
+        char[] buffer = new char[8];
+
+        assertEquals(1, reader.read(buffer, 0, 8));
+        assertEquals("broken", assertThrows(IOException.class, () -> reader.read(buffer, 0, 8)).getCause().getMessage());
+        reader.close();
+    }
+
+    @Test
+    public void testReadReturnsAvailableChars() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Reader blocking = new Reader() {
+            private int reads = 0;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (reads++ == 0) {
+                    "abc".getChars(0, 3, cbuf, off);
+
+                    return 3;
+                }
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                return -1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ReadAheadReader reader = new ReadAheadReader(blocking, 8, 2);
+        char[] buffer = new char[8];
+
+        assertEquals(3, reader.read(buffer, 0, 8));
+        assertEquals("abc", new String(buffer, 0, 3));
+
+        release.countDown();
+
+        assertEquals(-1, reader.read(buffer, 0, 8));
+        reader.close();
+    }
+
+    // returns at most 3 chars per read
+    private static final class SlowReader extends StringReader {
+        SlowReader(String s) {
+            super(s);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 3));
+        }
+    }
+}
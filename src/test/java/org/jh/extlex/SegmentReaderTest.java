@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class SegmentReaderTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z\u00e9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("\ud83d\ude00+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" +")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testTokensAcrossSegments() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        String[] parts = {"ab", "\u00e9", "\ud83d\ude00", "42", " "};
+        Random random = new Random(23);
+
+        for (int round = 0; round < 200; round++) {
+            StringBuilder input = new StringBuilder();
+
+            for (int i = random.nextInt(100); i > 0; i--) {
+                input.append(parts[random.nextInt(parts.length)]);
+            }
+
+            String text = input.toString();
+            List<String> expected = new ArrayList<>();
+
+            tokenizer.scan(text).getAllTokens(expected::add);
+
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            List<char[]> charSegments = new ArrayList<>();
+            List<ByteBuffer> byteSegments = new ArrayList<>();
+
+            for (int pos = 0; pos < text.length();) {
+                int length = Math.min(random.nextInt(7), text.length() - pos);
+
+                charSegments.add(text.substring(pos, pos + length).toCharArray());
+                pos += length;
+            }
+
+            for (int pos = 0; pos < bytes.length;) {
+                int length = Math.min(random.nextInt(7), bytes.length - pos);
+
+                byteSegments.add(ByteBuffer.wrap(bytes, pos, length));
+                pos += length;
+            }
+
+            assertEquals(expected, scan(tokenizer.scan(charSegments.toArray(new char[0][]))), text);
+            assertEquals(expected, scan(tokenizer.scan(byteSegments.toArray(new ByteBuffer[0]))), text);
+        }
+    }
+
+    @Test
+    public void testBuffersAreNotChanged() throws Exception {
+        CharBuffer first = CharBuffer.wrap("xxab c");
+        CharBuffer second = CharBuffer.wrap("d 12");
+
+        first.position(2);
+
+        assertEquals(Arrays.asList("ab", "cd", "12"), scan(createTokenizer().scan(new CharBuffer[] {first, second})));
+        assertEquals(2, first.position());
+        assertEquals(0, second.position());
+    }
+
+    @Test
+    public void testReadSplitCharacterOneByOne() throws Exception {
+        byte[] bytes = "a\ud83d\ude00\u00e9".getBytes(StandardCharsets.UTF_8);
+        SegmentReader reader = new SegmentReader(new ByteBuffer[] {
+            ByteBuffer.wrap(bytes, 0, 2), ByteBuffer.wrap(bytes, 2, 3), ByteBuffer.wrap(bytes, 5, 2)});
+        char[] chars = new char[1];
+        StringBuilder text = new StringBuilder();
+
+        while (reader.read(chars, 0, 1) == 1) {
+            text.append(chars[0]);
+        }
+
+        assertEquals("a\ud83d\ude00\u00e9", text.toString());
+    }
+
+    private static List<String> scan(Scanner<String> scanner) throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        scanner.getAllTokens(tokens::add);
+
+        return tokens;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class StringInternerTest {
+    @Test
+    public void testSameStringForEqualTokens() throws Exception {
+        StringInterner interner = new StringInterner();
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> interner.intern(t, s, l))
+            .addPattern(" +")
+            .createTokenizer();
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.scan("host alpha host beta alpha host").getAllTokens(tokens::add);
+
+        assertEquals("host", tokens.get(0));
+        assertSame(tokens.get(0), tokens.get(2));
+        assertSame(tokens.get(0), tokens.get(5));
+        assertSame(tokens.get(1), tokens.get(4));
+    }
+
+    @Test
+    public void testEviction() {
+        StringInterner interner = new StringInterner(16, 8);
+        String hot = interner.intern("hot");
+
+        for (int i = 0; i < 10000; i++) {
+            String text = "w" + i;
+
+            assertEquals(text, interner.intern(text));
+            assertSame(hot, interner.intern("hot"));
+        }
+
+        String longText = "a long identifier";
+
+        assertEquals(longText, interner.intern(longText.toCharArray(), 0, longText.length()));
+    }
+}
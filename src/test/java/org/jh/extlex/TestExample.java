@@ -169,6 +169,19 @@ public class TestExample {
         new Lexer<String>()
                 .addPattern("\\{[ \t\n\r)*([^ \t\n\r\"0-9][^ \t\n\r\"]+|\"([^\\\"]|\\.)*\"|[0-9]*){: \n\r\t}\\}\\[([a-zA-z]+)|[0-9]+){:,}\\]|\\{(?R1){:,})\\})");
     }
+
+    @Test
+    public void testSkipPatterns() throws Exception {
+        Scanner<String> scanner = new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \n]+")
+            .addPattern("#[^\n]*")
+            .scan("  ab #comment\n cd  ");
+
+        assertEquals("ab", scanner.getNextToken());
+        assertEquals("cd", scanner.getNextToken());
+        assertFalse(scanner.hasNext());
+    }
 }
 
 
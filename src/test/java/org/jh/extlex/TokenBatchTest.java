@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class TokenBatchTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \n]+")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testFillBatch() throws Exception {
+        Scanner<String> scanner = createTokenizer().scan("ab 12\ncde 3 f");
+        TokenBatch batch = new TokenBatch(3, true);
+
+        assertEquals(3, scanner.fillBatch(batch));
+        assertArrayEquals(new int[] {0, 1, 0}, batch.getRuleIds());
+        assertArrayEquals(new long[] {0, 3, 6}, batch.getStarts());
+        assertArrayEquals(new int[] {2, 2, 3}, batch.getLengths());
+        assertArrayEquals(new int[] {1, 1, 2}, batch.getLines());
+        assertArrayEquals(new int[] {1, 4, 1}, batch.getColumns());
+
+        assertEquals(2, scanner.fillBatch(batch));
+        assertEquals(1, batch.getRuleIds()[0]);
+        assertEquals(10, batch.getStarts()[0]);
+        assertEquals(0, batch.getRuleIds()[1]);
+        assertEquals(12, batch.getStarts()[1]);
+        assertEquals(1, batch.getLengths()[1]);
+
+        assertEquals(0, scanner.fillBatch(batch));
+    }
+
+    @Test
+    public void testFillBatchWithTokenTypes() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addTokenType("[a-z]+")
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" +")
+            .createTokenizer();
+        String text = "ab 12 cde 3";
+        TokenBatch batch = new TokenBatch(8);
+        List<Integer> types = new ArrayList<>();
+        Scanner<String> pulled = tokenizer.scan(text);
+
+        for (int type = pulled.nextTokenType(); type != Scanner.END; type = pulled.nextTokenType()) {
+            types.add(type);
+        }
+
+        assertEquals(4, tokenizer.scan(text).fillBatch(batch));
+        assertArrayEquals(new int[] {0, 1, 0, 1}, Arrays.copyOf(batch.getRuleIds(), batch.size()));
+        assertArrayEquals(new long[] {0, 3, 6, 10}, Arrays.copyOf(batch.getStarts(), batch.size()));
+        assertEquals(Arrays.asList(0, 1, 0, 1), types);
+    }
+
+    @Test
+    public void testFillBatchFromSmallBuffer() throws Exception {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            input.append("word").append(i).append(' ');
+        }
+
+        String text = input.toString();
+        Scanner<String> scanner = createTokenizer().scan(new TokenReader(new StringReader(text), 16));
+        TokenBatch batch = new TokenBatch(64);
+        int count = 0;
+
+        while (scanner.fillBatch(batch) > 0) {
+            for (int i = 0; i < batch.size(); i++, count++) {
+                int start = (int) batch.getStarts()[i];
+                String token = text.substring(start, start + batch.getLengths()[i]);
+
+                assertEquals(count % 2 == 0 ? "word" : String.valueOf(count / 2), token);
+            }
+        }
+
+        assertEquals(1000, count);
+    }
+
+    @Test
+    public void testGroupsAfterShiftingTheBuffer() throws Exception {
+        List<String> words = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+
+        new Lexer<String>()
+            .addPattern("([a-z]+){:,}", () -> words.clear(), (char[] t, int s, int l) -> String.join("+", words),
+                (char[] t, int s, int l) -> words.add(new String(t, s, l)))
+            .addPattern(" ")
+            .scan(new TokenReader(new StringReader("ab,cd ef,gh ij,kl mn,op"), 8))
+            .getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("ab+cd", "ef+gh", "ij+kl", "mn+op"), tokens);
+    }
+}
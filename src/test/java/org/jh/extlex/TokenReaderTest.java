@@ -17,7 +17,16 @@ package org.jh.extlex;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.jh.extlex.exception.UnknownTokenException;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -32,13 +41,13 @@ public class TokenReaderTest {
         sb = new StringBuilder();
     }
     
-    void readToSB(TokenReader tr) throws IOException {
+    void readToSB(TokenReader tr) throws Exception {
         while ((ch = tr.read()) != -1) {
             sb.append((char)ch);
         }        
     }
 
-    void readNoCharToSB(TokenReader tr, int no) throws IOException {
+    void readNoCharToSB(TokenReader tr, int no) throws Exception {
         for (int i = 0; i < no; i++) {
             sb.append((char)tr.read());
         }        
@@ -182,4 +191,256 @@ public class TokenReaderTest {
         assertEquals(5, tr.getPos());
         assertEquals(3, tr.getDelta());
     }
+
+    @Test
+    public void testCharArrayInPlace() throws Exception {
+        char[] input = "xx ab,cd ef yy".toCharArray();
+        List<String> tokens = new ArrayList<>();
+
+        new Lexer<String>()
+            .addPattern("([a-z]+){:,}", (char[] t, int s, int l) -> {
+                    assertSame(input, t);
+                    return new String(t, s, l);
+                }, (char[] t, int s, int l) -> tokens.add("group " + new String(t, s, l)))
+            .addPattern(" ")
+            .scan(input, 2, 10)
+            .getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("group ab", "group cd", "ab,cd", "group ef", "ef"), tokens);
+    }
+
+    @Test
+    public void testCharBufferWithPosition() throws Exception {
+        CharBuffer input = CharBuffer.wrap("--ab cd".toCharArray());
+
+        input.position(2);
+
+        Scanner<String> scanner = new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" ")
+            .scan(input);
+        TokenBatch batch = new TokenBatch(4);
+
+        assertEquals(2, scanner.fillBatch(batch));
+        assertArrayEquals(new long[] {0, 3}, Arrays.copyOf(batch.getStarts(), 2));
+    }
+
+    @Test
+    public void testGeometricGrowthAndShrink() throws Exception {
+        char[] input = new char[10000 + 20000];
+
+        Arrays.fill(input, 'a');
+        Arrays.fill(input, 10000, input.length, ' ');
+
+        TokenReader tr = new TokenReader(new StringReader(new String(input)), 16).init();
+
+        readNoCharToSB(tr, 10000);
+
+        assertEquals(16384, tr.getBufSize());
+
+        tr.accepted();
+        readNoCharToSB(tr, 1);
+
+        while (tr.read() != -1) {
+            tr.accepted();
+        }
+
+        assertEquals(16, tr.getBufSize());
+    }
+
+    @Test
+    public void testGeometricGrowthWithPinnedInput() throws Exception {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            input.append("a ");
+        }
+
+        TokenReader tr = new TokenReader(new StringReader(input.toString()), 4).setMaxTokenLength(2, false);
+        Scanner<String> scanner = new Lexer<String>()
+            .addTokenType("a")
+            .addPattern(" ")
+            .scan(tr);
+
+        scanner.pin(0);
+
+        while (scanner.nextTokenType() != Scanner.END) {
+        }
+
+        // the pinned input doesn't fit into the maximum token length, the buffer still doubles
+        assertEquals(1024, tr.getBufSize());
+        assertEquals(input.toString(), scanner.view(0, input.length()).toString());
+    }
+
+    @Test
+    public void testMaxTokenLength() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" ")
+            .createTokenizer();
+        String input = "abc abcdefghijklmnop xy";
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.scan(new TokenReader(new StringReader(input), 4).setMaxTokenLength(8, true))
+            .getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("abc", "abcdefgh", "ijklmnop", "xy"), tokens);
+
+        Scanner<String> scanner = tokenizer.scan(new TokenReader(new StringReader(input), 4).setMaxTokenLength(8, false));
+
+        assertEquals("abc", scanner.getNextToken());
+        assertThrows(UnknownTokenException.class, scanner::getNextToken);
+    }
+
+    @Test
+    public void testMaxTokenLengthIndependentOfBufferSize() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("a+|b", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" ")
+            .createTokenizer();
+
+        for (int bufSize : new int[] {4, 256}) {
+            List<String> tokens = new ArrayList<>();
+
+            tokenizer.scan(new TokenReader(new StringReader("aaaaaaaa b"), bufSize).setMaxTokenLength(5, true))
+                .getAllTokens(tokens::add);
+
+            assertEquals(Arrays.asList("aaaaa", "aaa", "b"), tokens);
+
+            Scanner<String> scanner = tokenizer.scan(
+                new TokenReader(new StringReader("aaaaaaaaaa b"), bufSize).setMaxTokenLength(5, false));
+
+            assertThrows(UnknownTokenException.class, scanner::getNextToken);
+
+            tokens.clear();
+            tokenizer.scan(new TokenReader(new StringReader("aaaaa b aaaaa"), bufSize).setMaxTokenLength(5, false))
+                .getAllTokens(tokens::add);
+
+            assertEquals(Arrays.asList("aaaaa", "b", "aaaaa"), tokens);
+        }
+
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.scan(new TokenReader("aaaaaaaa b".toCharArray()).setMaxTokenLength(5, true))
+            .getAllTokens(tokens::add);
+
+        assertEquals(Arrays.asList("aaaaa", "aaa", "b"), tokens);
+    }
+
+    @Test
+    public void testShorterTokenBeforeMaxTokenLength() throws Exception {
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("a", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("abcde", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("bbbbb", (char[] t, int s, int l) -> new String(t, s, l))
+            .createTokenizer();
+
+        for (int bufSize : new int[] {2, 256}) {
+            Scanner<String> scanner = tokenizer.scan(new TokenReader(new StringReader("abcdx"), bufSize).setMaxTokenLength(3, false));
+
+            assertEquals("a", scanner.getNextToken());
+            assertThrows(UnknownTokenException.class, scanner::getNextToken);
+
+            // no token within the maximum length
+            scanner = tokenizer.scan(new TokenReader(new StringReader("bbbbb"), bufSize).setMaxTokenLength(3, false));
+
+            assertThrows(UnknownTokenException.class, scanner::getNextToken);
+        }
+    }
+
+    @Test
+    public void testLazyPositions() throws Exception {
+        String input = "ab\ncd  ef\r\n\ngh i\n  jk";
+        List<String> positions = new ArrayList<>();
+        TokenReader tr = new TokenReader(new StringReader(input), 4);
+
+        new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) ->
+                tr.getYPos() + ":" + tr.getXPos() + "-" + tr.getYEndPos() + ":" + tr.getXEndPos())
+            .addPattern("[ \r\n]+")
+            .scan(tr)
+            .getAllTokens(positions::add);
+
+        assertEquals(Arrays.asList("1:1-1:3", "2:1-2:3", "2:5-2:7", "4:1-4:3", "4:4-4:5", "5:3-5:5"), positions);
+
+        TokenReader noPositions = new TokenReader(new StringReader(input), 4).setTrackPositions(false);
+
+        new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[ \r\n]+")
+            .scan(noPositions)
+            .getAllTokens(positions::add);
+
+        assertThrows(IllegalStateException.class, noPositions::getYPos);
+
+        // only requested for the last token after many shifts of the buffer
+        TokenReader late = new TokenReader(new StringReader(input), 4);
+
+        positions.clear();
+        new Lexer<String>()
+            .addPattern("[a-z]+", (char[] t, int s, int l) ->
+                t[s] == 'j' ? late.getYPos() + ":" + late.getXPos() + "-" + late.getYEndPos() + ":" + late.getXEndPos() : null)
+            .addPattern("[ \r\n]+")
+            .scan(late)
+            .getAllTokens(positions::add);
+
+        assertEquals("5:3-5:5", positions.get(positions.size() - 1));
+
+        // the start of the line has been shifted out of the buffer before the token
+        TokenReader longLine = new TokenReader(new StringReader("a\rbbbbbbbbbb cc"), 4);
+
+        positions.clear();
+        new Lexer<String>()
+            .addPattern("c+", (char[] t, int s, int l) -> longLine.getYPos() + ":" + longLine.getXPos())
+            .addPattern("[ \rab]+")
+            .scan(longLine)
+            .getAllTokens(positions::add);
+
+        assertEquals(Arrays.asList("1:12"), positions);
+    }
+
+    @Test
+    public void testOffsetsBeyondIntRange() throws Exception {
+        List<String> groups = new ArrayList<>();
+        Tokenizer<String> tokenizer = new Lexer<String>()
+            .addPattern("a", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("a*b", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("x(y+)", (char[] t, int s, int l) -> new String(t, s, l),
+                (char[] t, int s, int l) -> groups.add(new String(t, s, l)))
+            .addPattern("\n")
+            .createTokenizer();
+        TokenReader tr = new TokenReader(new StringReader("aaaab\naaa\nxyyy\naa"), 4);
+        long first = Integer.MAX_VALUE - 6L;
+        List<String> tokens = new ArrayList<>();
+
+        tr.setInputOffset(first);
+
+        Scanner<String> scanner = tokenizer.scan(tr);
+
+        assertTrue(scanner.isLinearTime());
+
+        while (scanner.hasNext()) {
+            tokens.add(scanner.getToken() + "@" + (scanner.tokenStart() - first) + "-" + (scanner.tokenEnd() - first)
+                + ":" + tr.getStartLine());
+        }
+
+        assertEquals(Arrays.asList("aaaab@0-5:1", "a@6-7:2", "a@7-8:2", "a@8-9:2", "xyyy@10-14:3", "a@15-16:4", "a@16-17:4"),
+            tokens);
+        assertEquals(Arrays.asList("yyy"), groups);
+    }
+
+    @Test
+    public void testShortReads() throws Exception {
+        StringReader sr = new StringReader("abcdefghij") {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+        TokenReader tr = new TokenReader(sr, 8).init();
+
+        readToSB(tr);
+
+        assertEquals("abcdefghij", sb.toString());
+    }
 }
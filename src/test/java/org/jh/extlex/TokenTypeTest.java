@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+public class TokenTypeTest {
+    enum Kind { WORD, NUMBER }
+
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addTokenType(Kind.WORD, "[a-z]+")
+            .addTokenType(Kind.NUMBER, "[0-9]+")
+            .addPattern(" +")
+            .addTokenType(";")
+            .createTokenizer();
+    }
+
+    @Test
+    public void testRuleNumbers() throws Exception {
+        Scanner<String> scanner = createTokenizer().scan("abc 42;x");
+
+        assertEquals(0, scanner.nextTokenType());
+        assertEquals(0, scanner.tokenStart());
+        assertEquals(3, scanner.tokenEnd());
+        assertEquals(1, scanner.nextTokenType());
+        assertEquals(3, scanner.nextTokenType());
+        assertEquals(0, scanner.nextTokenType());
+        assertEquals(Scanner.END, scanner.nextTokenType());
+    }
+
+    @Test
+    public void testEnumBinding() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        Scanner<String> scanner = tokenizer.scan("abc 42;x");
+        ByteScanner<String> byteScanner = tokenizer.scan("abc 42;x".getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        Kind kind;
+
+        while ((kind = scanner.nextTokenType(Kind.class)) != null || scanner.tokenType() == 3) {
+            assertEquals(kind, byteScanner.nextTokenType(Kind.class));
+
+            if (kind == null) {
+                sb.append(';');
+                continue;
+            }
+
+            switch (kind) {
+                case WORD: sb.append('w'); break;
+                case NUMBER: sb.append('n'); break;
+            }
+        }
+
+        assertEquals("wn;w", sb.toString());
+        assertNull(byteScanner.nextTokenType(Kind.class));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class TokenViewTest {
+    private Tokenizer<String> createTokenizer() throws Exception {
+        return new Lexer<String>()
+            .addPattern("[a-z\u00e9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern("[0-9]+", (char[] t, int s, int l) -> new String(t, s, l))
+            .addPattern(" +")
+            .createTokenizer();
+    }
+
+    private static String input() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            sb.append(i % 3 == 0 ? "w\u00e9rd" + i % 7 : "" + i * 31).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    @Test
+    public void testViewsOfAllInputs() throws Exception {
+        Tokenizer<String> tokenizer = createTokenizer();
+        String text = input();
+        List<String> expected = new ArrayList<>();
+
+        tokenizer.scan(text).getAllTokens(expected::add);
+
+        List<String> views = new ArrayList<>();
+        Scanner<String> scanner = tokenizer.scan(new StringReader(text), 16);
+
+        while (scanner.hasNext()) {
+            TokenView view = scanner.tokenView();
+            String token = text.substring((int) scanner.tokenStart(), (int) scanner.tokenEnd());
+
+            if (!token.trim().isEmpty()) {
+                assertTrue(view.contentEquals(token));
+                assertEquals(token.hashCode(), view.hash());
+                assertEquals(token.substring(1), view.subSequence(1, view.length()).toString());
+                views.add(view.toString());
+            }
+        }
+
+        assertEquals(expected, views);
+
+        List<String> byteViews = new ArrayList<>();
+        ByteScanner<String> byteScanner = tokenizer.scan(text.getBytes(StandardCharsets.UTF_8));
+
+        while (byteScanner.hasNext()) {
+            byteViews.add(byteScanner.tokenView().toString());
+        }
+
+        assertEquals(expected, byteViews);
+    }
+
+    @Test
+    public void testPinnedLookbehind() throws Exception {
+        String text = input();
+        Scanner<String> scanner = createTokenizer().scan(new StringReader(text), 16);
+        long previous = -1;
+
+        while (scanner.hasNext()) {
+            if (previous >= 0) {
+                assertEquals(text.substring((int) previous, (int) scanner.tokenEnd()),
+                    scanner.view(previous, scanner.tokenEnd()).toString());
+            }
+
+            previous = scanner.tokenStart();
+            scanner.pin(previous);
+        }
+
+        scanner.pin(-1);
+    }
+}
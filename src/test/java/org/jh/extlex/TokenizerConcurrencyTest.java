@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 jhmyr
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jh.extlex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class TokenizerConcurrencyTest {
+    static final int THREADS = 8;
+    static final int ROUNDS = 2000;
+
+    // the group methods collect into the list of the actual thread
+    final ThreadLocal<List<String>> words = ThreadLocal.withInitial(ArrayList::new);
+    final ThreadLocal<int[]> hits = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Test
+    public void testSharedTokenizer() throws Exception {
+        Tokenizer<String> to = new Lexer<String>()
+            .addPattern("([a-z]+){:,}",
+                () -> words.get().clear(),
+                (t, s, l) -> String.join("+", words.get()),
+                (t, s, l) -> words.get().add(new String(t, s, l)))
+            .addPattern("(<(?R)>)*",
+                () -> hits.get()[0] = 0,
+                (t, s, l) -> "#" + hits.get()[0],
+                (t, s, l) -> hits.get()[0]++)
+            .addPattern(" ")
+            .createTokenizer();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int no = t;
+
+                results.add(executor.submit(() -> {
+                    start.await();
+
+                    for (int round = 0; round < ROUNDS; round++) {
+                        int depth = 1 + (no + round) % 5;
+                        String input = words(no, round) + " " + brackets(depth);
+                        List<String> tokens = new ArrayList<>();
+
+                        to.scan(input).getAllTokens((s) -> tokens.add(s));
+
+                        assertEquals(2, tokens.size(), input);
+                        assertEquals(words(no, round).replace(',', '+'), tokens.get(0), input);
+                        assertEquals("#" + depth, tokens.get(1), input);
+                    }
+
+                    return ROUNDS;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(ROUNDS, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static String words(int no, int round) {
+        StringBuilder sb = new StringBuilder();
+        String sep = "";
+
+        for (int i = 0; i <= (no + round) % 7; i++) {
+            sb.append(sep).append((char) ('a' + (no + i) % 26)).append((char) ('a' + round % 26));
+            sep = ",";
+        }
+
+        return sb.toString();
+    }
+
+    static String brackets(int count) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            sb.insert(0, '<').append('>');
+        }
+
+        return sb.toString();
+    }
+}